@@ -0,0 +1,277 @@
+package generator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import sequencingConstraints.SequenceCursor;
+import sequencingConstraints.SolverByAutomaton;
+import util.EventAlphabet;
+
+/**
+ * test sequence generator by beam search, as an alternative of the greedy extension phase of SequenceGeneratorByAutomaton.
+ *
+ * Each test sequence starts from the same starting sequence as the greedy generator (a feasible target or BFS),
+ * and then it is extended by keeping the top-B partial sequences ranked by their cumulative new coverage,
+ * instead of committing to one event at a time. All partial sequences of the beam are extended by every event,
+ * only the valid or extendable ones are kept, and the valid sequence of max coverage in the whole search is chosen.
+ * A larger beam width costs more CPU for a smaller test suite.
+ * 
+ * The generation loop, the extendability cache, the budget and the fork-join pool are the ones of the greedy generator, 
+ * which calls back searchSequence() instead of its extension phase.
+ *
+ * @author Feng Duan
+ *
+ */
+public class BeamSequenceGenerator {
+	public static final int DEFAULT_BEAM_WIDTH = 8;
+
+	private EventAlphabet alphabet; // events are interned as indices shared with solver
+	private List<String> listOfEvents;
+	private SolverByAutomaton solver;
+
+	private TargetUniverse universe;
+	private TargetBitSet setOfUncoveredTargetSeqs; // shared with generator
+	
+	private SequenceGeneratorByAutomaton generator; // creates starting sequences, and runs the generation loop
+
+	private int beamWidth = DEFAULT_BEAM_WIDTH;
+
+	/**
+	 * @param eventsList
+	 * @param csolver
+	 * @param uncoveredTargetSeqs t-way target sequences of the same length
+	 */
+	public BeamSequenceGenerator(List<String> eventsList, SolverByAutomaton csolver, Set<List<String>> uncoveredTargetSeqs) {
+		this(new SequenceGeneratorByAutomaton(eventsList, csolver, uncoveredTargetSeqs), csolver);
+	}
+
+	/**
+	 * @param csolver
+	 * @param subseqs
+	 */
+	public BeamSequenceGenerator(SolverByAutomaton csolver, Subsequences subseqs) {
+		this(new SequenceGeneratorByAutomaton(csolver, subseqs), csolver);
+	}
+
+	// the targets and events are the same as the greedy generator of starting sequences
+	private BeamSequenceGenerator(SequenceGeneratorByAutomaton generator, SolverByAutomaton csolver) {
+		this.generator = generator;
+		solver = csolver;
+		alphabet = solver.getAlphabet();
+		listOfEvents = alphabet.getEvents();
+
+		universe = generator.getUniverse();
+		setOfUncoveredTargetSeqs = generator.getUncoveredTargets();
+		
+		generator.setBeamSearch(this);
+	}
+
+	public void generate() {
+		generator.generate();
+	}
+
+	/**
+	 * beam search for one valid sequence of max coverage extended from the starting sequence
+	 *
+	 * @param startingSequence a valid or extendable sequence
+	 * @return the valid sequence of max coverage, the shortest one if tie, 
+	 * or null if no valid sequence is found (before the budget of extensibility search is exhausted)
+	 */
+	EncodedSequence searchSequence(EncodedSequence startingSequence) {
+		List<BeamEntry> beam = new ArrayList<BeamEntry>();
+		beam.add(new BeamEntry(startingSequence));
+
+		final int numberOfEvents = listOfEvents.size();
+		BeamEntry best = null;
+		while (!beam.isEmpty()) {
+			// anytime result: the best valid sequence so far
+			if (generator.isExtensionExhausted())
+				break;
+			
+			// the beam is visited level by level, thus the first valid sequence of max coverage is the shortest one
+			for (BeamEntry entry : beam) {
+				if (entry.cursor.isValid() && (best == null || entry.coverage > best.coverage))
+					best = entry;
+			}
+
+			/* extend every partial sequence by every event */
+			final List<BeamEntry> parents = beam;
+			final Candidate[] candidates = new Candidate[parents.size() * numberOfEvents];
+			new ParallelLoop(generator.getPool()) {
+				@Override
+				void body(int i) {
+					BeamEntry parent = parents.get(i);
+					if (!generator.isExtendable(parent.cursor))
+						return;
+
+					for (int event = 0; event < numberOfEvents; event++) {
+						SequenceCursor extendedCursor = parent.cursor.append(event);
+						if (extendedCursor.isValid() || generator.isExtendable(extendedCursor))
+							candidates[i * numberOfEvents + event] = new Candidate(parent, event, extendedCursor,
+									parent.coverage + parent.countNewlyCovered(event));
+					}
+				}
+			}.run(parents.size());
+
+			// keep the top-B candidates by cumulative coverage, the earlier one if tie (sort is stable)
+			List<Candidate> rankedCandidates = new ArrayList<Candidate>();
+			for (Candidate candidate : candidates) {
+				if (candidate != null)
+					rankedCandidates.add(candidate);
+			}
+			Collections.sort(rankedCandidates, new Comparator<Candidate>() {
+				@Override
+				public int compare(Candidate c1, Candidate c2) {
+					return c2.coverage - c1.coverage;
+				}
+			});
+
+			final List<Candidate> selectedCandidates = rankedCandidates.subList(0, Math.min(beamWidth, rankedCandidates.size()));
+			final BeamEntry[] nextBeam = new BeamEntry[selectedCandidates.size()];
+			new ParallelLoop(generator.getPool()) {
+				@Override
+				void body(int i) {
+					nextBeam[i] = new BeamEntry(selectedCandidates.get(i));
+				}
+			}.run(nextBeam.length);
+
+			beam = new ArrayList<BeamEntry>();
+			Collections.addAll(beam, nextBeam);
+		}
+
+		return best == null ? null : best.sequence;
+	}
+
+	// a partial sequence in the beam, with its coverage
+	private class BeamEntry {
+		final EncodedSequence sequence;
+		final SequenceCursor cursor;
+		final CoverageState coverageState; // covered prefixes
+		final TargetBitSet coveredTargets; // uncovered targets covered by the sequence
+		final int coverage;
+
+		BeamEntry(EncodedSequence sequence) {
+			this.sequence = sequence;
+			cursor = solver.newCursor().append(sequence.getEventIndices(), sequence.length());
+
+			coverageState = new CoverageState(universe);
+			coveredTargets = universe.newTargetSet();
+			for (int i = 0; i < sequence.length(); i++) {
+				coverageState.collectNewlyCovered(sequence.get(i), setOfUncoveredTargetSeqs, coveredTargets);
+				coverageState.append(sequence.get(i));
+			}
+			coverage = (int) coveredTargets.size(); // covered by one sequence
+		}
+
+		BeamEntry(Candidate candidate) {
+			BeamEntry parent = candidate.parent;
+			sequence = parent.sequence.append(candidate.event);
+			cursor = candidate.cursor;
+
+			coveredTargets = new TargetBitSet(parent.coveredTargets);
+			parent.coverageState.collectNewlyCovered(candidate.event, setOfUncoveredTargetSeqs, coveredTargets);
+			coverageState = new CoverageState(parent.coverageState);
+			coverageState.append(candidate.event);
+			coverage = candidate.coverage;
+		}
+
+		// the number of uncovered targets which are newly covered by appending the event, but not yet by the sequence
+		int countNewlyCovered(int event) {
+			int n = listOfEvents.size();
+			int count = 0;
+			TargetBitSet prefixes = coverageState.getCoveredPrefixes(universe.getStrength() - 1);
+			for (long p = prefixes.nextRank(0); p >= 0; p = prefixes.nextRank(p + 1)) {
+				long rank = p * n + event;
+				if (setOfUncoveredTargetSeqs.contains(rank) && !coveredTargets.contains(rank))
+					count++;
+			}
+			return count;
+		}
+	}
+
+	// an extension of a partial sequence by one event, materialized as BeamEntry only if selected
+	private static class Candidate {
+		final BeamEntry parent;
+		final int event;
+		final SequenceCursor cursor;
+		final int coverage; // cumulative coverage
+
+		Candidate(BeamEntry parent, int event, SequenceCursor cursor, int coverage) {
+			this.parent = parent;
+			this.event = event;
+			this.cursor = cursor;
+			this.coverage = coverage;
+		}
+	}
+
+	/**
+	 * @return the setOfTestSequences
+	 */
+	public Set<List<String>> getSetOfTestSequences() {
+		return generator.getSetOfTestSequences();
+	}
+
+	/**
+	 * @return the setOfUncoveredTargetSeqs
+	 */
+	public Set<List<String>> getSetOfUncoveredTargetSeqs() {
+		return universe.toTargetSeqs(setOfUncoveredTargetSeqs);
+	}
+
+	/**
+	 * @return the ranks of uncovered target sequences in the universe
+	 */
+	public TargetBitSet getUncoveredTargets() {
+		return setOfUncoveredTargetSeqs;
+	}
+
+	public TargetUniverse getUniverse() {
+		return universe;
+	}
+
+	/**
+	 * @return the greedy generator creating starting sequences and running the generation loop, 
+	 * where the budget and the extendability cache are configured
+	 */
+	public SequenceGeneratorByAutomaton getStartingPhaseGenerator() {
+		return generator;
+	}
+
+	public ExtendabilityCache getExtendabilityCache() {
+		return generator.getExtendabilityCache();
+	}
+
+	public int getBeamWidth() {
+		return beamWidth;
+	}
+
+	/**
+	 * @param beamWidth the number of partial sequences kept at each step, at least 1
+	 */
+	public void setBeamWidth(int beamWidth) {
+		if (beamWidth < 1)
+			throw new IllegalArgumentException("Beam width " + beamWidth + " should be at least 1!");
+		this.beamWidth = beamWidth;
+	}
+
+	/**
+	 * @param isParallelMode extend the partial sequences of the beam on the fork-join pool of generator
+	 */
+	public void setParallelMode(boolean isParallelMode) {
+		generator.setParallelMode(isParallelMode);
+	}
+
+	public boolean isParallelMode() {
+		return generator.isParallelMode();
+	}
+
+	/**
+	 * @param isDebugMode the isDebugMode to set
+	 */
+	public void setDebugMode(boolean isDebugMode) {
+		generator.setDebugMode(isDebugMode);
+	}
+}
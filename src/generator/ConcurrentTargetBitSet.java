@@ -0,0 +1,82 @@
+package generator;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * a set of target sequences as a bitset of ranks, which is shared by concurrent extensions of sequences.
+ *
+ * A target is claimed by clearing its bit atomically, so that each target is counted as newly covered
+ * by exactly one sequence, even if several sequences cover it at the same time.
+ *
+ * @author Feng Duan
+ *
+ */
+public class ConcurrentTargetBitSet {
+	private final AtomicLongArray words;
+	private final long capacity;
+
+	public ConcurrentTargetBitSet(TargetBitSet targets) {
+		capacity = targets.getCapacity();
+		words = new AtomicLongArray((int) ((capacity + 63) >> 6));
+		for (long rank = targets.nextRank(0); rank >= 0; rank = targets.nextRank(rank + 1)) {
+			int index = (int) (rank >> 6);
+			words.set(index, words.get(index) | (1L << rank));
+		}
+	}
+
+	public boolean contains(long rank) {
+		return (words.get((int) (rank >> 6)) & (1L << rank)) != 0;
+	}
+
+	/**
+	 * remove the target atomically
+	 *
+	 * @param rank
+	 * @return true if the target is removed by this call, false if it is not in the set
+	 */
+	public boolean claim(long rank) {
+		int index = (int) (rank >> 6);
+		long mask = 1L << rank;
+		while (true) {
+			long word = words.get(index);
+			if ((word & mask) == 0)
+				return false;
+			if (words.compareAndSet(index, word, word & ~mask))
+				return true;
+		}
+	}
+
+	public boolean isEmpty() {
+		for (int i = 0; i < words.length(); i++) {
+			if (words.get(i) != 0)
+				return false;
+		}
+		return true;
+	}
+
+	public long size() {
+		long size = 0;
+		for (int i = 0; i < words.length(); i++)
+			size += Long.bitCount(words.get(i));
+		return size;
+	}
+
+	/**
+	 * @return a snapshot of the set
+	 */
+	public TargetBitSet toTargetSet() {
+		TargetBitSet targets = new TargetBitSet(capacity);
+		for (int i = 0; i < words.length(); i++) {
+			long word = words.get(i);
+			while (word != 0) {
+				targets.add(((long) i << 6) + Long.numberOfTrailingZeros(word));
+				word &= word - 1;
+			}
+		}
+		return targets;
+	}
+
+	public long getCapacity() {
+		return capacity;
+	}
+}
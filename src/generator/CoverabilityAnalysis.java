@@ -0,0 +1,347 @@
+package generator;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import sequencingConstraints.CompiledAutomaton;
+import sequencingConstraints.EventAutomaton;
+import sequencingConstraints.SequenceCursor;
+import sequencingConstraints.SolverByAutomaton;
+
+/**
+ * decide the coverability of all t-way target sequences at once, before generation.
+ *
+ * A target is coverable if it is a subsequence (in-consecutive) of a valid test sequence,
+ * i.e., the constraint automaton intersected with the automaton of "contains this subsequence" accepts
+ * a sequence within the Maximum Length and the Maximum Repetition.
+ *
+ * (1) Length: targets are enumerated in a trie of prefixes, and for each prefix, the minimum length to cover it
+ * and arrive every automaton state is computed from the one of its parent prefix, so that prefixes are shared by targets.
+ * (2) Repetition: when the Maximum Repetition may be exceeded within the Maximum Length, the remaining targets are
+ * confirmed by a depth-first search over (automaton state, repetitions, matched events),
+ * pruned by the minimum length to cover the remaining events of the target and arrive an accepting state.
+ * The analysis is over the automaton stepped by the cursors of solver: in lazy product mode, all reachable product states
+ * are materialized by the analysis, instead of compiling the whole constraint.
+ *
+ * @author Feng Duan
+ *
+ */
+public class CoverabilityAnalysis {
+	private static final int UNREACHABLE = CompiledAutomaton.UNREACHABLE;
+
+	private TargetUniverse universe;
+	private SolverByAutomaton solver;
+	private EventAutomaton automaton; // the same automaton as the one of cursors, so that their states are the same
+
+	private int n; // number of events
+	private int[] eventsOfClasses; // the first event of each class of events, which are stepped for all events of the class
+	private int t; // strength of target sequences
+	private int numberOfStates;
+	private int maxLength;
+	private int maxRepetition;
+
+	// reversed transitions: sources of state s are predecessors[offsets[s] .. offsets[s+1])
+	private int[] offsets;
+	private int[] predecessors;
+
+	private int[] distancesToAccept; // the minimum length from state s to arrive an accepting state, within the Maximum Length
+
+	private TargetBitSet coverableTargets;
+	private TargetBitSet uncoverableTargets;
+
+	/**
+	 * @param universe
+	 * @param solver
+	 * @param targets the targets to be analyzed
+	 */
+	public CoverabilityAnalysis(TargetUniverse universe, SolverByAutomaton solver, TargetBitSet targets) {
+		this.universe = universe;
+		this.solver = solver;
+		if (solver.isLazyProductMode())
+			automaton = solver.getLazyProductAutomaton();
+		else
+			automaton = solver.getCompiledAutomaton();
+
+		n = universe.getNumberOfEvents();
+		t = universe.getStrength();
+		maxLength = solver.getMAX_LENGTH();
+		maxRepetition = solver.getMAX_REPETITION();
+
+		eventsOfClasses = new int[automaton.getNumberOfClasses()];
+		Arrays.fill(eventsOfClasses, -1);
+		for (int event = 0; event < n; event++) {
+			int k = automaton.getEventClass(event);
+			if (eventsOfClasses[k] < 0)
+				eventsOfClasses[k] = event;
+		}
+
+		materializeStates();
+		numberOfStates = automaton.getNumberOfStates();
+		buildPredecessors();
+
+		distancesToAccept = new int[numberOfStates];
+		Arrays.fill(distancesToAccept, UNREACHABLE);
+		for (int s = 0; s < numberOfStates; s++) {
+			if (automaton.isAccept(s))
+				distancesToAccept[s] = 0;
+		}
+		closeBackward(distancesToAccept);
+
+		coverableTargets = universe.newTargetSet();
+		uncoverableTargets = universe.newTargetSet();
+
+		// distances[j][q] = the minimum length of a sequence covering the first j events of target and arriving state q
+		int[][] distances = new int[t + 1][numberOfStates];
+		Arrays.fill(distances[0], UNREACHABLE);
+		distances[0][automaton.getInitialState()] = 0;
+		close(distances[0]);
+
+		searchPrefixes(targets, distances, 0, 0, new int[t]);
+	}
+
+	// step every transition of every reachable state, so that states created on the fly are all created
+	private void materializeStates() {
+		for (int s = 0; s < automaton.getNumberOfStates(); s++) {
+			for (int event : eventsOfClasses)
+				automaton.step(s, event);
+		}
+	}
+
+	private void buildPredecessors() {
+		offsets = new int[numberOfStates + 1];
+		for (int s = 0; s < numberOfStates; s++) {
+			for (int event : eventsOfClasses) {
+				int dest = automaton.step(s, event);
+				if (dest != CompiledAutomaton.DEAD)
+					offsets[dest + 1]++;
+			}
+		}
+		for (int s = 0; s < numberOfStates; s++)
+			offsets[s + 1] += offsets[s];
+
+		predecessors = new int[offsets[numberOfStates]];
+		int[] filled = new int[numberOfStates];
+		for (int s = 0; s < numberOfStates; s++) {
+			for (int event : eventsOfClasses) {
+				int dest = automaton.step(s, event);
+				if (dest != CompiledAutomaton.DEAD)
+					predecessors[offsets[dest] + filled[dest]++] = s;
+			}
+		}
+	}
+
+	// depth-first enumeration of the trie of target prefixes
+	private void searchPrefixes(TargetBitSet targets, int[][] distances, int j, long prefixRank, int[] targetSeq) {
+		if (j == t) {
+			if (isCoverableOnLength(distances[t]) && isCoverableOnRepetition(targetSeq))
+				coverableTargets.add(prefixRank);
+			else
+				uncoverableTargets.add(prefixRank);
+			return;
+		}
+
+		long sizeOfSubtree = 1;
+		for (int k = j + 1; k < t; k++)
+			sizeOfSubtree *= n;
+
+		for (int event = 0; event < n; event++) {
+			long rank = prefixRank * n + event;
+			long firstRank = rank * sizeOfSubtree;
+			long nextRank = targets.nextRank(firstRank);
+			if (nextRank < 0 || nextRank >= firstRank + sizeOfSubtree)
+				continue; // no target with this prefix
+
+			targetSeq[j] = event;
+			if (stepAndClose(distances[j], event, distances[j + 1]))
+				searchPrefixes(targets, distances, j + 1, rank, targetSeq);
+			else {
+				// no sequence within the Maximum Length covers this prefix
+				for (long r = nextRank; r >= 0 && r < firstRank + sizeOfSubtree; r = targets.nextRank(r + 1))
+					uncoverableTargets.add(r);
+			}
+		}
+	}
+
+	/**
+	 * @param from distances before the event
+	 * @param event the next event of target
+	 * @param to distances after the event and any events after it
+	 * @return false if no state is reachable within the Maximum Length
+	 */
+	private boolean stepAndClose(int[] from, int event, int[] to) {
+		Arrays.fill(to, UNREACHABLE);
+		boolean isReachable = false;
+		for (int s = 0; s < numberOfStates; s++) {
+			if (from[s] >= maxLength)
+				continue;
+
+			int dest = automaton.step(s, event);
+			if (dest != CompiledAutomaton.DEAD && from[s] + 1 < to[dest]) {
+				to[dest] = from[s] + 1;
+				isReachable = true;
+			}
+		}
+
+		if (isReachable)
+			close(to);
+		return isReachable;
+	}
+
+	// relax distances along transitions of any event, within the Maximum Length
+	private void close(int[] distances) {
+		for (int d = 0; d < maxLength; d++) {
+			for (int s = 0; s < numberOfStates; s++) {
+				if (distances[s] != d)
+					continue;
+
+				for (int event : eventsOfClasses) {
+					int dest = automaton.step(s, event);
+					if (dest != CompiledAutomaton.DEAD && d + 1 < distances[dest])
+						distances[dest] = d + 1;
+				}
+			}
+		}
+	}
+
+	// relax distances backward along transitions of any event, within the Maximum Length
+	private void closeBackward(int[] distances) {
+		for (int d = 0; d < maxLength; d++) {
+			for (int s = 0; s < numberOfStates; s++) {
+				if (distances[s] != d)
+					continue;
+
+				for (int i = offsets[s]; i < offsets[s + 1]; i++) {
+					int source = predecessors[i];
+					if (d + 1 < distances[source])
+						distances[source] = d + 1;
+				}
+			}
+		}
+	}
+
+	private boolean isCoverableOnLength(int[] distances) {
+		for (int s = 0; s < numberOfStates; s++) {
+			if (distances[s] <= maxLength && automaton.isAccept(s))
+				return true;
+		}
+		return false;
+	}
+
+	private boolean isCoverableOnRepetition(int[] targetSeq) {
+		// no event can exceed the Maximum Repetition within the Maximum Length
+		if (maxRepetition >= maxLength)
+			return true;
+
+		// remainingDistances[j][q] = the minimum length from state q to cover the events of target from j and arrive an accepting state
+		int[][] remainingDistances = new int[t + 1][numberOfStates];
+		System.arraycopy(distancesToAccept, 0, remainingDistances[t], 0, numberOfStates);
+		for (int j = t - 1; j >= 0; j--) {
+			Arrays.fill(remainingDistances[j], UNREACHABLE);
+			for (int s = 0; s < numberOfStates; s++) {
+				int dest = automaton.step(s, targetSeq[j]);
+				if (dest != CompiledAutomaton.DEAD && remainingDistances[j + 1][dest] < maxLength)
+					remainingDistances[j][s] = remainingDistances[j + 1][dest] + 1;
+			}
+			closeBackward(remainingDistances[j]);
+		}
+
+		return isCoverableInDFS(solver.newCursor(), 0, targetSeq, remainingDistances, new HashSet<SearchState>());
+	}
+
+	// events of target are matched greedily, which finds the target in any sequence covering it
+	private boolean isCoverableInDFS(SequenceCursor cursor, int j, int[] targetSeq, int[][] remainingDistances, Set<SearchState> failedStates) {
+		if (j == t)
+			return cursor.isValid() || cursor.isExtendable();
+
+		if (remainingDistances[j][cursor.getState()] > maxLength - cursor.getLength())
+			return false;
+
+		// the remaining events of target should not exceed the Maximum Repetition
+		for (int k = j; k < t; k++) {
+			int event = targetSeq[k];
+			int count = cursor.getCount(event);
+			for (int l = j; l < t; l++) {
+				if (targetSeq[l] == event)
+					count++;
+			}
+			if (count > maxRepetition)
+				return false;
+		}
+
+		SearchState searchState = new SearchState(cursor, j);
+		if (failedStates.contains(searchState))
+			return false;
+
+		// try the next event of target first
+		int nextEvent = targetSeq[j];
+		SequenceCursor matchedCursor = cursor.append(nextEvent);
+		if (!matchedCursor.isDead() && isCoverableInDFS(matchedCursor, j + 1, targetSeq, remainingDistances, failedStates))
+			return true;
+
+		for (int event = 0; event < n; event++) {
+			if (event == nextEvent)
+				continue;
+
+			SequenceCursor extendedCursor = cursor.append(event);
+			if (!extendedCursor.isDead() && isCoverableInDFS(extendedCursor, j, targetSeq, remainingDistances, failedStates))
+				return true;
+		}
+
+		failedStates.add(searchState);
+		return false;
+	}
+
+	/**
+	 * @return the targets which are covered by at least one valid test sequence
+	 */
+	public TargetBitSet getCoverableTargets() {
+		return coverableTargets;
+	}
+
+	/**
+	 * @return the targets which are not covered by any valid test sequence
+	 */
+	public TargetBitSet getUncoverableTargets() {
+		return uncoverableTargets;
+	}
+
+	/**
+	 * @param rank rank of target in the universe
+	 * @return
+	 */
+	public boolean isCoverable(long rank) {
+		return coverableTargets.contains(rank);
+	}
+
+	public TargetUniverse getUniverse() {
+		return universe;
+	}
+
+	// (automaton state, repetition of every event, number of matched events of target)
+	private static class SearchState {
+		private final int state;
+		private final int[] eventCounts; // shared with the cursor
+		private final int matched;
+
+		SearchState(SequenceCursor cursor, int matched) {
+			state = cursor.getState();
+			eventCounts = cursor.getEventCounts();
+			this.matched = matched;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof SearchState))
+				return false;
+
+			SearchState other = (SearchState) obj;
+			return state == other.state && matched == other.matched && Arrays.equals(eventCounts, other.eventCounts);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (31 * state + matched) + Arrays.hashCode(eventCounts);
+		}
+	}
+}
@@ -0,0 +1,238 @@
+package generator;
+
+import java.util.Arrays;
+
+/**
+ * incremental coverage of one sequence: for each length k < t, the set of k-way subsequences
+ * (as ranks over n^k) which are already covered by the sequence.
+ *
+ * When an event e is appended, the only newly covered t-way targets are those ending in e
+ * whose (t-1)-prefix is already covered by the sequence,
+ * so the new coverage is computed without rescanning all targets.
+ *
+ * @author Feng Duan
+ *
+ */
+public class CoverageState {
+	private int n; // number of events
+	private int t; // strength of target sequences
+
+	// coveredPrefixes[k] = covered k-way subsequences, k = 0 .. t-1; coveredPrefixes[0] = {empty}
+	private TargetBitSet[] coveredPrefixes;
+
+	// prefixes added by undoable appends, encoded as rank * t + k, and the log size before each undoable append
+	private long[] addedPrefixes = new long[16];
+	private int numberOfAddedPrefixes = 0;
+	private int[] undoMarks = new int[4];
+	private int numberOfUndoMarks = 0;
+
+	// coverage of empty sequence
+	public CoverageState(TargetUniverse universe) {
+		n = universe.getNumberOfEvents();
+		t = universe.getStrength();
+
+		coveredPrefixes = new TargetBitSet[t];
+		long size = 1;
+		for (int k = 0; k < t; k++) {
+			coveredPrefixes[k] = new TargetBitSet(size);
+			size *= n;
+		}
+		coveredPrefixes[0].add(0);
+	}
+
+	// copy constructor, without the undo log of the original
+	public CoverageState(CoverageState original) {
+		n = original.n;
+		t = original.t;
+
+		coveredPrefixes = new TargetBitSet[t];
+		for (int k = 0; k < t; k++)
+			coveredPrefixes[k] = new TargetBitSet(original.coveredPrefixes[k]);
+	}
+
+	/**
+	 * coverage of the given sequence of event indices
+	 */
+	public static CoverageState of(TargetUniverse universe, int[] sequence) {
+		CoverageState coverage = new CoverageState(universe);
+		for (int event : sequence)
+			coverage.append(event);
+		return coverage;
+	}
+
+	/**
+	 * append an event to the sequence
+	 *
+	 * @param event event index
+	 */
+	public void append(int event) {
+		// from long prefixes to short ones, so that every prefix is extended by this event only once
+		for (int k = t-1; k >= 1; k--) {
+			TargetBitSet shorter = coveredPrefixes[k-1];
+			TargetBitSet longer = coveredPrefixes[k];
+			for (long p = shorter.nextRank(0); p >= 0; p = shorter.nextRank(p + 1))
+				longer.add(p * n + event);
+		}
+	}
+
+	/**
+	 * append an event in place, which can be undone by undoAppend,
+	 * only the newly covered prefixes are recorded, instead of copying the covered prefixes
+	 *
+	 * @param event event index
+	 */
+	public void appendUndoable(int event) {
+		if (numberOfUndoMarks == undoMarks.length)
+			undoMarks = Arrays.copyOf(undoMarks, 2 * undoMarks.length);
+		undoMarks[numberOfUndoMarks++] = numberOfAddedPrefixes;
+
+		for (int k = t-1; k >= 1; k--) {
+			TargetBitSet shorter = coveredPrefixes[k-1];
+			TargetBitSet longer = coveredPrefixes[k];
+			for (long p = shorter.nextRank(0); p >= 0; p = shorter.nextRank(p + 1)) {
+				long rank = p * n + event;
+				if (longer.contains(rank))
+					continue;
+				longer.add(rank);
+				if (numberOfAddedPrefixes == addedPrefixes.length)
+					addedPrefixes = Arrays.copyOf(addedPrefixes, 2 * addedPrefixes.length);
+				addedPrefixes[numberOfAddedPrefixes++] = rank * t + k;
+			}
+		}
+	}
+
+	/**
+	 * undo the last undoable append
+	 */
+	public void undoAppend() {
+		if (numberOfUndoMarks == 0)
+			throw new IllegalStateException("No undoable append to be undone!");
+
+		int mark = undoMarks[--numberOfUndoMarks];
+		for (int i = mark; i < numberOfAddedPrefixes; i++)
+			coveredPrefixes[(int) (addedPrefixes[i] % t)].remove(addedPrefixes[i] / t);
+		numberOfAddedPrefixes = mark;
+	}
+
+	/**
+	 * Two states with the same original state have equal arrays if and only if they are equal.
+	 *
+	 * @return a new sorted array of the prefixes added by the undoable appends not undone yet, encoded as rank * t + k
+	 */
+	public long[] getAddedPrefixes() {
+		long[] result = Arrays.copyOf(addedPrefixes, numberOfAddedPrefixes);
+		Arrays.sort(result);
+		return result;
+	}
+
+	/**
+	 * @param event event index to be appended
+	 * @param uncoveredTargets
+	 * @return the number of uncovered targets which would be newly covered by appending the event
+	 */
+	public int countNewlyCovered(int event, TargetBitSet uncoveredTargets) {
+		int count = 0;
+		TargetBitSet prefixes = coveredPrefixes[t-1];
+		for (long p = prefixes.nextRank(0); p >= 0; p = prefixes.nextRank(p + 1)) {
+			if (uncoveredTargets.contains(p * n + event))
+				count++;
+		}
+		return count;
+	}
+
+	/**
+	 * @param event event index to be appended
+	 * @param uncoveredTargets uncovered targets shared by concurrent extensions
+	 * @return the number of uncovered targets which would be newly covered by appending the event, at the time of counting
+	 */
+	public int countNewlyCovered(int event, ConcurrentTargetBitSet uncoveredTargets) {
+		int count = 0;
+		TargetBitSet prefixes = coveredPrefixes[t-1];
+		for (long p = prefixes.nextRank(0); p >= 0; p = prefixes.nextRank(p + 1)) {
+			if (uncoveredTargets.contains(p * n + event))
+				count++;
+		}
+		return count;
+	}
+
+	/**
+	 * claim the uncovered targets which are newly covered by appending the event,
+	 * the ones claimed by other sequences at the same time are not counted
+	 *
+	 * @param event event index to be appended
+	 * @param uncoveredTargets uncovered targets shared by concurrent extensions
+	 * @return the number of targets claimed
+	 */
+	public int claimNewlyCovered(int event, ConcurrentTargetBitSet uncoveredTargets) {
+		int count = 0;
+		TargetBitSet prefixes = coveredPrefixes[t-1];
+		for (long p = prefixes.nextRank(0); p >= 0; p = prefixes.nextRank(p + 1)) {
+			if (uncoveredTargets.claim(p * n + event))
+				count++;
+		}
+		return count;
+	}
+
+	/**
+	 * add the uncovered targets which would be newly covered by appending the event into newlyCoveredTargets
+	 *
+	 * @param event event index to be appended
+	 * @param uncoveredTargets
+	 * @param newlyCoveredTargets
+	 */
+	public void collectNewlyCovered(int event, TargetBitSet uncoveredTargets, TargetBitSet newlyCoveredTargets) {
+		TargetBitSet prefixes = coveredPrefixes[t-1];
+		for (long p = prefixes.nextRank(0); p >= 0; p = prefixes.nextRank(p + 1)) {
+			long rank = p * n + event;
+			if (uncoveredTargets.contains(rank))
+				newlyCoveredTargets.add(rank);
+		}
+	}
+
+	/**
+	 * @param k length of prefixes, 0 <= k < t
+	 * @return the covered k-way subsequences
+	 */
+	public TargetBitSet getCoveredPrefixes(int k) {
+		return coveredPrefixes[k];
+	}
+
+	/**
+	 * @param other coverage state of another sequence
+	 * @return true if every prefix covered by this sequence is also covered by the other,
+	 * thus appending the same events to the other newly covers at least the targets newly covered by this sequence
+	 */
+	public boolean isDominatedBy(CoverageState other) {
+		for (int k = 0; k < t; k++) {
+			if (!other.coveredPrefixes[k].containsAll(coveredPrefixes[k]))
+				return false;
+		}
+		return true;
+	}
+
+	// sequences with equal coverage states newly cover the same targets by the same appended events
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof CoverageState))
+			return false;
+
+		CoverageState other = (CoverageState) obj;
+		if (t != other.t || n != other.n)
+			return false;
+		for (int k = 0; k < t; k++) {
+			if (!coveredPrefixes[k].equals(other.coveredPrefixes[k]))
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int h = 1;
+		for (TargetBitSet prefixes : coveredPrefixes)
+			h = 31 * h + prefixes.hashCode();
+		return h;
+	}
+}
@@ -0,0 +1,124 @@
+package generator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * a sequence of events encoded as event indices,
+ * which supports allocation-free subsequence checks.
+ *
+ * An EncodedSequence is immutable, appending an event creates a new sequence.
+ *
+ * @author Feng Duan
+ *
+ */
+public class EncodedSequence {
+	private final int[] events;
+	private final int numberOfEvents; // size of the event alphabet
+
+	private int hash; // cached hash code, 0 if not yet computed
+
+	/**
+	 * @param events event indices, which are copied
+	 * @param numberOfEvents
+	 */
+	public EncodedSequence(int[] events, int numberOfEvents) {
+		this.events = events.clone();
+		this.numberOfEvents = numberOfEvents;
+	}
+
+	// prefix with the event appended, the extended array is owned by the new sequence
+	private EncodedSequence(EncodedSequence prefix, int event) {
+		events = Arrays.copyOf(prefix.events, prefix.events.length + 1);
+		events[prefix.events.length] = event;
+		numberOfEvents = prefix.numberOfEvents;
+	}
+
+	// empty sequence
+	public EncodedSequence(int numberOfEvents) {
+		this(new int[0], numberOfEvents);
+	}
+
+	/**
+	 * @param event event index
+	 * @return a new sequence with the event appended
+	 */
+	public EncodedSequence append(int event) {
+		return new EncodedSequence(this, event);
+	}
+
+	public int length() {
+		return events.length;
+	}
+
+	public int get(int position) {
+		return events[position];
+	}
+
+	public int[] toArray() {
+		return events.clone();
+	}
+
+	/**
+	 * @return the backing array of event indices, which must not be modified
+	 */
+	public int[] getEventIndices() {
+		return events;
+	}
+
+	/**
+	 * check if this sequence covers a subseq or not (in-consecutive), without allocation
+	 *
+	 * @param subseq event indices of the subseq
+	 * @return
+	 */
+	public boolean covers(int[] subseq) {
+		if (events.length < subseq.length)
+			return false;
+
+		// single-pass two pointers
+		int j = 0;
+		for (int i = 0; i < events.length && j < subseq.length; i++) {
+			if (events[i] == subseq[j])
+				j++;
+		}
+		return j == subseq.length;
+	}
+
+	/**
+	 * @param listOfEvents events in the order of their indices
+	 * @return the sequence of event names
+	 */
+	public List<String> decode(List<String> listOfEvents) {
+		List<String> sequence = new ArrayList<String>(events.length);
+		for (int event : events)
+			sequence.add(listOfEvents.get(event));
+		return sequence;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof EncodedSequence))
+			return false;
+
+		return Arrays.equals(events, ((EncodedSequence) obj).events);
+	}
+
+	@Override
+	public int hashCode() {
+		int h = hash;
+		if (h == 0) {
+			h = Arrays.hashCode(events);
+			hash = h;
+		}
+		return h;
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(events);
+	}
+}
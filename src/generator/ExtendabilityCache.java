@@ -0,0 +1,218 @@
+package generator;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import sequencingConstraints.SequenceCursor;
+
+/**
+ * a bounded LRU cache of extensibility results.
+ *
+ * The extensibility of a sequence is determined by its automaton state, its remaining length,
+ * and the repetition of every event, thus different sequences arriving the same (state, remaining length, repetitions)
+ * share one entry, instead of keying entries by the whole sequences.
+ * 
+ * Entries are split into stripes by the hash of keys, and each stripe is an LRU cache with its own lock 
+ * and its share of the capacity, so that parallel candidate evaluations only contend on the same stripe. 
+ * When the number of entries of a stripe exceeds its share, the least recently used entry of the stripe is evicted, 
+ * thus the eviction is exactly LRU with one stripe.
+ *
+ * @author Feng Duan
+ *
+ */
+public class ExtendabilityCache {
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+	public static final int DEFAULT_NUMBER_OF_STRIPES = 16;
+
+	private volatile int capacity;
+	private Stripe[] stripes;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	public ExtendabilityCache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity the maximum number of entries, 0 to disable caching
+	 */
+	public ExtendabilityCache(int capacity) {
+		this(capacity, DEFAULT_NUMBER_OF_STRIPES);
+	}
+
+	/**
+	 * @param capacity the maximum number of entries, 0 to disable caching
+	 * @param numberOfStripes the number of stripes with their own locks, 1 for exact LRU eviction
+	 */
+	public ExtendabilityCache(int capacity, int numberOfStripes) {
+		if (numberOfStripes < 1)
+			throw new IllegalArgumentException("Number of stripes " + numberOfStripes + " should be at least 1!");
+
+		stripes = new Stripe[numberOfStripes];
+		for (int i = 0; i < numberOfStripes; i++)
+			stripes[i] = new Stripe();
+		setCapacity(capacity);
+	}
+
+	private Stripe getStripe(Key key) {
+		int h = key.hashCode();
+		h ^= h >>> 16;
+		return stripes[(h & Integer.MAX_VALUE) % stripes.length];
+	}
+
+	/**
+	 * @param cursor a live cursor
+	 * @param maxLength the Maximum Length of sequences
+	 * @return the cached extensibility, or null if it is not cached
+	 */
+	public Boolean get(SequenceCursor cursor, int maxLength) {
+		Key key = new Key(cursor, maxLength);
+		Stripe stripe = getStripe(key);
+		Boolean result;
+		synchronized (stripe) {
+			result = stripe.get(key);
+		}
+		if (result == null)
+			misses.incrementAndGet();
+		else
+			hits.incrementAndGet();
+		return result;
+	}
+
+	/**
+	 * @param cursor a live cursor
+	 * @param maxLength the Maximum Length of sequences
+	 * @param isExtendable
+	 */
+	public void put(SequenceCursor cursor, int maxLength, boolean isExtendable) {
+		if (capacity == 0)
+			return;
+
+		Key key = new Key(cursor, maxLength);
+		Stripe stripe = getStripe(key);
+		synchronized (stripe) {
+			if (stripe.capacity > 0)
+				stripe.put(key, isExtendable);
+		}
+	}
+
+	public void clear() {
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				stripe.clear();
+			}
+		}
+	}
+
+	public int size() {
+		int size = 0;
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				size += stripe.size();
+			}
+		}
+		return size;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public int getNumberOfStripes() {
+		return stripes.length;
+	}
+
+	/**
+	 * @param capacity the maximum number of entries, which is shared by stripes, 
+	 * and the least recently used entries of a stripe are evicted if exceeding its share
+	 */
+	public synchronized void setCapacity(int capacity) {
+		if (capacity < 0)
+			throw new IllegalArgumentException("Capacity of cache " + capacity + " should not be negative!");
+
+		this.capacity = capacity;
+		for (int i = 0; i < stripes.length; i++) {
+			Stripe stripe = stripes[i];
+			synchronized (stripe) {
+				stripe.capacity = capacity / stripes.length + (i < capacity % stripes.length ? 1 : 0);
+				while (stripe.size() > stripe.capacity) {
+					stripe.remove(stripe.keySet().iterator().next());
+					evictions.incrementAndGet();
+				}
+			}
+		}
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	@Override
+	public String toString() {
+		return "size = " + size() + ", capacity = " + capacity +
+				", hits = " + hits.get() + ", misses = " + misses.get() + ", evictions = " + evictions.get();
+	}
+
+	// an LRU cache of one stripe, guarded by itself
+	private class Stripe extends LinkedHashMap<Key, Boolean> {
+		private static final long serialVersionUID = 1L;
+
+		int capacity;
+
+		Stripe() {
+			// access order for LRU eviction
+			super(16, 0.75f, true);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Boolean> eldest) {
+			if (size() > capacity) {
+				evictions.incrementAndGet();
+				return true;
+			}
+			return false;
+		}
+	}
+
+	// (automaton state, remaining length, repetition of every event)
+	private static class Key {
+		private final int state;
+		private final int remainingLength;
+		private final int[] eventCounts; // shared with the cursor
+		private final int hash;
+
+		Key(SequenceCursor cursor, int maxLength) {
+			state = cursor.getState();
+			remainingLength = maxLength - cursor.getLength();
+			eventCounts = cursor.getEventCounts();
+			hash = 31 * (31 * state + remainingLength) + Arrays.hashCode(eventCounts);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+
+			Key other = (Key) obj;
+			return state == other.state && remainingLength == other.remainingLength
+					&& Arrays.equals(eventCounts, other.eventCounts);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package generator;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * budgets of one generation: a deadline of the whole generation,
+ * the number of nodes evaluated in the BFS of starting phases,
+ * and the number of extensibility searches (the ones not answered by the extendability cache).
+ *
+ * The starting-phase BFS and the extensibility search are charged separately,
+ * and both of them are exhausted once the deadline has passed.
+ * Counters are atomic, so that they can be charged by parallel evaluations.
+ *
+ * @author Feng Duan
+ *
+ */
+public class GenerationBudget {
+	public static final long UNLIMITED = Long.MAX_VALUE;
+
+	private long timeLimit = UNLIMITED; // in milliseconds
+	private long maxSearchNodes = UNLIMITED;
+	private long maxExtendabilitySearches = UNLIMITED;
+
+	private long deadline = UNLIMITED;
+	private final AtomicLong searchNodes = new AtomicLong();
+	private final AtomicLong extendabilitySearches = new AtomicLong();
+
+	/**
+	 * start the deadline and reset the counters, at the beginning of generation
+	 */
+	public void start() {
+		long now = System.currentTimeMillis();
+		deadline = timeLimit > UNLIMITED - now ? UNLIMITED : now + timeLimit;
+		searchNodes.set(0);
+		extendabilitySearches.set(0);
+	}
+
+	public boolean isTimeExhausted() {
+		return deadline != UNLIMITED && System.currentTimeMillis() >= deadline;
+	}
+
+	/**
+	 * @param numberOfNodes the number of BFS nodes to be evaluated
+	 * @return false if the nodes exceed the budget of starting phases, or the deadline has passed
+	 */
+	public boolean chargeSearchNodes(long numberOfNodes) {
+		return searchNodes.addAndGet(numberOfNodes) <= maxSearchNodes && !isTimeExhausted();
+	}
+
+	public void chargeExtendabilitySearch() {
+		extendabilitySearches.incrementAndGet();
+	}
+
+	/**
+	 * @return true if the extensibility searches have reached the budget, or the deadline has passed
+	 */
+	public boolean isExtensionExhausted() {
+		return extendabilitySearches.get() >= maxExtendabilitySearches || isTimeExhausted();
+	}
+
+	public long getTimeLimit() {
+		return timeLimit;
+	}
+
+	/**
+	 * @param timeLimit in milliseconds, or UNLIMITED
+	 */
+	public void setTimeLimit(long timeLimit) {
+		if (timeLimit < 0)
+			throw new IllegalArgumentException("Time limit " + timeLimit + " should not be negative!");
+		this.timeLimit = timeLimit;
+	}
+
+	public long getMaxSearchNodes() {
+		return maxSearchNodes;
+	}
+
+	/**
+	 * @param maxSearchNodes the number of nodes evaluated in the BFS of all starting phases, or UNLIMITED
+	 */
+	public void setMaxSearchNodes(long maxSearchNodes) {
+		if (maxSearchNodes < 0)
+			throw new IllegalArgumentException("Budget of search nodes " + maxSearchNodes + " should not be negative!");
+		this.maxSearchNodes = maxSearchNodes;
+	}
+
+	public long getMaxExtendabilitySearches() {
+		return maxExtendabilitySearches;
+	}
+
+	/**
+	 * @param maxExtendabilitySearches the number of extensibility searches in the whole generation, or UNLIMITED
+	 */
+	public void setMaxExtendabilitySearches(long maxExtendabilitySearches) {
+		if (maxExtendabilitySearches < 0)
+			throw new IllegalArgumentException("Budget of extensibility searches " + maxExtendabilitySearches + " should not be negative!");
+		this.maxExtendabilitySearches = maxExtendabilitySearches;
+	}
+
+	public long getSearchNodes() {
+		return searchNodes.get();
+	}
+
+	public long getExtendabilitySearches() {
+		return extendabilitySearches.get();
+	}
+
+	@Override
+	public String toString() {
+		return "search nodes = " + searchNodes.get() + ", extensibility searches = " + extendabilitySearches.get();
+	}
+}
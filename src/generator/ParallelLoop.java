@@ -0,0 +1,62 @@
+package generator;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * a loop over indices 0 .. size-1 whose bodies are independent,
+ * run on a fork-join pool in parallel mode, otherwise run sequentially in index order
+ *
+ * @author Feng Duan
+ *
+ */
+abstract class ParallelLoop {
+	private ForkJoinPool pool;
+
+	/**
+	 * @param pool the fork-join pool, or null to run sequentially
+	 */
+	ParallelLoop(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	abstract void body(int i);
+
+	void run(int size) {
+		if (pool == null || size <= 1) {
+			for (int i = 0; i < size; i++)
+				body(i);
+			return;
+		}
+
+		// a few leaves per worker for load balancing
+		int grain = Math.max(1, size / (pool.getParallelism() * 8));
+		pool.invoke(new LoopTask(0, size, grain));
+	}
+
+	private class LoopTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private int from;
+		private int to;
+		private int grain;
+
+		LoopTask(int from, int to, int grain) {
+			this.from = from;
+			this.to = to;
+			this.grain = grain;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > grain) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new LoopTask(from, middle, grain), new LoopTask(middle, to, grain));
+				return;
+			}
+
+			for (int i = from; i < to; i++)
+				body(i);
+		}
+	}
+}
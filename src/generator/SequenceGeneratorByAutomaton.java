@@ -1,19 +1,18 @@
 package generator;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 
-import dk.brics.automaton.Automaton;
-import dk.brics.automaton.State;
-import dk.brics.automaton.Transition;
-import sequencingConstraints.ConstraintToAutomaton;
+import sequencingConstraints.SequenceCursor;
 import sequencingConstraints.SolverByAutomaton;
+import util.EventAlphabet;
 
 /**
  * test sequence generator using the algorithm in my dissertation
@@ -24,73 +23,161 @@ import sequencingConstraints.SolverByAutomaton;
 public class SequenceGeneratorByAutomaton {
 	boolean isDebugMode = false;
 	
+	private EventAlphabet alphabet; // events are interned as indices shared with solver
 	private List<String> listOfEvents;
-	private Set<List<String>> setOfUncoveredTargetSeqs;
 	private SolverByAutomaton solver;
+	
+	// t-way target sequences are indexed by their ranks in the universe, 
+	// and the set of uncovered target sequences is stored as a bitset of ranks
+	private TargetUniverse universe;
+	private TargetBitSet setOfUncoveredTargetSeqs;
 
 	private Set<List<String>> setOfTestSequences;
 	
-	private Queue<List<String>> backupQueueOfTwaySequence; // as starting sequence candidates in BFS
+	private TargetBitSet backupSetOfTwaySequence; // as starting sequence candidates in BFS
+	
+	private TargetFeasibilityIndex feasibilityIndex; // feasibility of targets as starting sequences, built at the first starting phase
+	
+	private int lookAheadWindowSize = 1; // by default = 1, window size for break-tie
+	
+	private int batchSize = 1; // by default = 1, number of sequences generated concurrently in one batch
+	
+	private BeamSequenceGenerator beamSearch; // extends starting sequences by beam search instead of greedy extension, null by default
+	
+	private boolean isCoverabilityPrepass = false; // decide coverability of all targets before generation
+	private CoverabilityAnalysis coverabilityAnalysis;
 	
-	private Map<List<String>, Boolean> extendabilityCache = new HashMap<List<String>, Boolean>();
+	private boolean isSuiteReduction = false; // remove redundant test sequences after generation
+	private SuiteReducer suiteReducer;
 	
+	// bounded cache keyed by (automaton state, remaining length, repetition of every event)
+	private ExtendabilityCache extendabilityCache = new ExtendabilityCache();
+	
+	private ForkJoinPool pool; // candidate events and BFS levels are evaluated in parallel on the pool, null in sequential mode
+	
+	private GenerationBudget budget = new GenerationBudget(); // unlimited by default
+	private volatile boolean isStoppedByBudget = false;
+	
+	/**
+	 * Note that target sequences are visited in the order of their ranks, 
+	 * which is the same order as they are enumerated by Subsequences.
+	 * 
+	 * @param eventsList
+	 * @param csolver
+	 * @param uncoveredTargetSeqs t-way target sequences of the same length
+	 */
 	public SequenceGeneratorByAutomaton(List<String> eventsList, SolverByAutomaton csolver, Set<List<String>> uncoveredTargetSeqs) {
-		listOfEvents = eventsList;
 		solver = csolver;
-		setOfUncoveredTargetSeqs = uncoveredTargetSeqs;
+		initAlphabet(eventsList);
+		
+		int t = uncoveredTargetSeqs.isEmpty() ? 1 : uncoveredTargetSeqs.iterator().next().size();
+		universe = new TargetUniverse(alphabet, t);
+		
+		initTargets(universe.toTargetSet(uncoveredTargetSeqs));
+	}
+	
+	/**
+	 * Create the generator from the lazily enumerated t-way subsequences, without storing them as lists.
+	 * 
+	 * @param csolver
+	 * @param subseqs
+	 */
+	public SequenceGeneratorByAutomaton(SolverByAutomaton csolver, Subsequences subseqs) {
+		solver = csolver;
+		initAlphabet(subseqs.getListOfEvents());
+		
+		universe = new TargetUniverse(alphabet, subseqs.getStrength());
+		
+		initTargets(universe.toTargetSet(subseqs));
+	}
+	
+	// share the event indices of solver, which must be interned from the same events
+	private void initAlphabet(List<String> eventsList) {
+		if (solver != null)
+			alphabet = solver.getAlphabet();
+		else
+			alphabet = new EventAlphabet(eventsList);
+		
+		if (!alphabet.getEvents().equals(eventsList))
+			throw new IllegalArgumentException("Events " + eventsList + " are different from the solver's events " + alphabet);
+		
+		listOfEvents = alphabet.getEvents();
+	}
+	
+	private void initTargets(TargetBitSet targets) {
+		setOfUncoveredTargetSeqs = targets;
 		
 		setOfTestSequences = new LinkedHashSet<List<String>>();
 		
 		// add t-way permutations with repetition as starting sequences candidates in BFS
-		backupQueueOfTwaySequence = new LinkedList<List<String>>(setOfUncoveredTargetSeqs);
+		backupSetOfTwaySequence = new TargetBitSet(setOfUncoveredTargetSeqs);
 	}
 	
-	public List<String> startingPhase(Set<List<String>> uncoveredTargetSeqs){
-		List<String> startingSequence = null;
+	public EncodedSequence startingPhase(TargetBitSet uncoveredTargetSeqs){
+		EncodedSequence startingSequence = null;
 		
-		List<String> selectedTargetSeq = null;
-		for (List<String> targetSeq : uncoveredTargetSeqs){
-			if (isValid(targetSeq) || isExtendable(targetSeq)){
-				selectedTargetSeq = targetSeq;
-				break;
-			}
-		}
+		// the first uncovered target which is valid or extendable, popped from the feasibility index
+		long selectedTargetSeq = getFeasibilityIndex().nextFeasibleTarget(uncoveredTargetSeqs);
 		
-		if (selectedTargetSeq != null){
+		if (selectedTargetSeq >= 0){
 			setOfUncoveredTargetSeqs.remove(selectedTargetSeq);
-			startingSequence = selectedTargetSeq;
+			startingSequence = getTargetSequence(selectedTargetSeq);
 			
 			return startingSequence;
 		}
 		else {
 			// create starting sequence from scratch, when target sequences are not valid nor extendable
 			// note that only coverage > 0 should be returned, otherwise return null
-			Set<List<String>> backupUncoveredTargetSeqs = new LinkedHashSet<List<String>>(setOfUncoveredTargetSeqs);
-			
-			startingSequence = new ArrayList<String>();
+			TargetBitSet backupUncoveredTargetSeqs = new TargetBitSet(setOfUncoveredTargetSeqs);
 			
 			// Create starting sequence to cover at least one uncovered target sequences
 			// BFS + FirstMatch (Currently using in paper IWCT 2019)
-			Queue<List<String>> queueOfTwaySequence = new LinkedList<List<String>>(backupQueueOfTwaySequence);
+			List<SearchNode> queueOfTwaySequence = new ArrayList<SearchNode>();
+			for (long targetSeq = backupSetOfTwaySequence.nextRank(0); targetSeq >= 0; targetSeq = backupSetOfTwaySequence.nextRank(targetSeq + 1)) {
+				EncodedSequence sequence = getTargetSequence(targetSeq);
+				// a target sequence of length t only covers itself
+				int coverage = uncoveredTargetSeqs.contains(targetSeq) ? 1 : 0;
+				queueOfTwaySequence.add(new SearchNode(sequence, getCursor(sequence), coverage, null));
+			}
 			startingSequence = genStartingSeqInBFS(uncoveredTargetSeqs, queueOfTwaySequence);
 			
 			if (startingSequence == null)
 				return null;
 			
-			Set<List<String>> newlyCoveredSubseqs = new LinkedHashSet<List<String>>();
-			for (List<String> subseq : backupUncoveredTargetSeqs){
-				if (true == isCovered(startingSequence, subseq)){
-					newlyCoveredSubseqs.add(subseq);
-				}
-			}
+			TargetBitSet newlyCoveredSubseqs = getNewlyCoveredSubseqs(backupUncoveredTargetSeqs, startingSequence);
 			
-			int coverage = newlyCoveredSubseqs.size(); // it may cover no target
+			long coverage = newlyCoveredSubseqs.size(); // it may cover no target
 			if (coverage > 0) 
 				return startingSequence;
 			else
 				return null;
 		}
 	}
+	
+	/**
+	 * @return the feasibility of target sequences as starting sequences
+	 */
+	public TargetFeasibilityIndex getFeasibilityIndex() {
+		if (feasibilityIndex == null) {
+			feasibilityIndex = new TargetFeasibilityIndex(universe, solver, backupSetOfTwaySequence);
+			
+			debugPrintln("# of target sequences which are neither valid nor extendable as starting sequences = " 
+					+ feasibilityIndex.getDeadTargets().size());
+		}
+		return feasibilityIndex;
+	}
+	
+	// the target sequence of the given rank as a sequence of event indices
+	private EncodedSequence getTargetSequence(long rank) {
+		int[] targetSeq = new int[universe.getStrength()];
+		universe.unrank(rank, targetSeq);
+		return new EncodedSequence(targetSeq, listOfEvents.size());
+	}
+	
+	// step the whole sequence in solver, only for sequences which are not extended from a cursor
+	private SequenceCursor getCursor(EncodedSequence sequence) {
+		return solver.newCursor().append(sequence.getEventIndices(), sequence.length());
+	}
 
 	public void generate(){
 		long genStartTime = System.currentTimeMillis();
@@ -98,20 +185,53 @@ public class SequenceGeneratorByAutomaton {
 		long startingPhaseCumulativeTime = 0;
 		long extensionPhaseCumulativeTime = 0;
 		
+		budget.start();
+		isStoppedByBudget = false;
+		
+		// With the pre-pass, the uncoverable target sequences are known before generation, 
+		// and generation stops once all coverable ones are covered, instead of failing to create a starting sequence.
+		// The uncoverable ones are kept in the set of uncovered target sequences, so that the generated sequences are the same.
+		TargetBitSet coverableTargetSeqs = null;
+		if (isCoverabilityPrepass) {
+			coverableTargetSeqs = getCoverabilityAnalysis().getCoverableTargets();
+			debugPrintln("# of uncoverable target sequences = " + coverabilityAnalysis.getUncoverableTargets().size());
+		}
+		
 		// Generate sequences to cover all target sequences
-		while (setOfUncoveredTargetSeqs.size() > 0) {
+		while (setOfUncoveredTargetSeqs.size() > 0 
+				&& (coverableTargetSeqs == null || setOfUncoveredTargetSeqs.intersects(coverableTargetSeqs))) {
 			/* Generate one sequence */
 			
+			if (budget.isTimeExhausted()) {
+				isStoppedByBudget = true;
+				break;
+			}
+			
 			debugPrintln("");
 			debugPrintln("# of uncovered target sequences = " + setOfUncoveredTargetSeqs.size());
-			debugPrintln(setOfUncoveredTargetSeqs.toString());
+			debugPrintln(universe.toTargetSeqs(setOfUncoveredTargetSeqs).toString());
+			
+			if (batchSize > 1 && beamSearch == null) {
+				// starting sequences are created in the batch, and its time is counted as extension phase
+				long batchStartTime = System.currentTimeMillis();
+				
+				int numberOfSequences = generateBatch();
+				
+				long batchTime = System.currentTimeMillis() - batchStartTime;
+				debugPrintln("Batch Time : " + (double)(batchTime)/1000 + " sec");
+				extensionPhaseCumulativeTime += batchTime;
+				
+				if (numberOfSequences == 0 || isStoppedByBudget)
+					break;
+				continue;
+			}
 			
 			// backup the set of uncovered target sequences to print newly covered target sequences at the end
-			Set<List<String>> backupSetOfUncoveredTargetSeqs = new LinkedHashSet<List<String>>(setOfUncoveredTargetSeqs);
+			TargetBitSet backupSetOfUncoveredTargetSeqs = new TargetBitSet(setOfUncoveredTargetSeqs);
 			
 			long startingPhaseStartTime = System.currentTimeMillis();
 			
-			List<String> sequence = startingPhase(setOfUncoveredTargetSeqs);
+			EncodedSequence sequence = startingPhase(setOfUncoveredTargetSeqs);
 			
 			long startingPhaseEndTime = System.currentTimeMillis();
 			long startingPhaseTime = startingPhaseEndTime - startingPhaseStartTime;
@@ -119,9 +239,9 @@ public class SequenceGeneratorByAutomaton {
 			
 			startingPhaseCumulativeTime += startingPhaseTime;
 			
-			if (sequence == null || sequence.isEmpty()) {
+			if (sequence == null || sequence.length() == 0) {
 				// If startingTestSequence cannot be created,
-				// then all remaining uncovered target sequences are uncoverable.
+				// then all remaining uncovered target sequences are uncoverable (or the budget of BFS is exhausted).
 				break;
 			}
 			
@@ -129,8 +249,14 @@ public class SequenceGeneratorByAutomaton {
 			// (greedy for maximum coverage, loop ahead 1 window size for break-tie)
 			long extensionPhaseStartTime = System.currentTimeMillis();
 			
-			int lookAheadWindowSize = 1; // by default = 1, window size for break-tie
-			sequence = extensionPhase(setOfUncoveredTargetSeqs, sequence, lookAheadWindowSize); // returned sequence is complete: not-extendable but valid
+			if (beamSearch != null) {
+				// returned sequence is the valid sequence of max coverage in beam search, or null if there is none
+				sequence = beamSearch.searchSequence(sequence);
+				if (sequence != null)
+					setOfUncoveredTargetSeqs.removeAll(getNewlyCoveredSubseqs(setOfUncoveredTargetSeqs, sequence));
+			}
+			else
+				sequence = extensionPhase(setOfUncoveredTargetSeqs, sequence, lookAheadWindowSize); // returned sequence is complete: not-extendable but valid
 			
 			long extensionPhaseEndTime = System.currentTimeMillis();
 			long extensionPhaseTime = extensionPhaseEndTime - extensionPhaseStartTime;
@@ -138,23 +264,55 @@ public class SequenceGeneratorByAutomaton {
 			
 			extensionPhaseCumulativeTime += extensionPhaseTime;
 			
-			setOfTestSequences.add(sequence);
+			if (isStoppedByBudget) {
+				// the sequence is truncated to its last valid prefix, or discarded if there is none, 
+				// thus the uncovered target sequences are recomputed from the backup
+				setOfUncoveredTargetSeqs.addAll(backupSetOfUncoveredTargetSeqs);
+				getFeasibilityIndex().rewind();
+				if (sequence == null)
+					break;
+				setOfUncoveredTargetSeqs.removeAll(getNewlyCoveredSubseqs(backupSetOfUncoveredTargetSeqs, sequence));
+			}
+			else if (sequence == null) {
+				// no valid sequence is found from the starting sequence, 
+				// thus the target sequences covered by the starting sequence are uncovered again
+				setOfUncoveredTargetSeqs.addAll(backupSetOfUncoveredTargetSeqs);
+				getFeasibilityIndex().rewind();
+				break;
+			}
+			
+			List<String> testSequence = alphabet.decode(sequence.getEventIndices());
+			setOfTestSequences.add(testSequence);
 			
 			debugPrintln("Generated Sequence : ");
-			debugPrintln(sequence.toString());
+			debugPrintln(testSequence.toString());
 			
 			backupSetOfUncoveredTargetSeqs.removeAll(setOfUncoveredTargetSeqs);
 			debugPrintln("Covered target sequences : ");
-			debugPrintln(backupSetOfUncoveredTargetSeqs.toString());
+			debugPrintln(universe.toTargetSeqs(backupSetOfUncoveredTargetSeqs).toString());
 			
+			if (isStoppedByBudget)
+				break;
+		}
+		
+		if (isSuiteReduction) {
+			suiteReducer = new SuiteReducer(universe, backupSetOfTwaySequence);
+			setOfTestSequences = suiteReducer.reduce(setOfTestSequences);
 		}
 		
 		System.out.println("");
 		System.out.println("Generation is Finished.");
 		
-		if (setOfUncoveredTargetSeqs.size() > 0) {
+		if (isSuiteReduction)
+			System.out.println("Suite Reduction : " + suiteReducer);
+		
+		if (isStoppedByBudget) {
+			System.out.println("Generation is stopped by budget: " + budget);
+			System.out.println(setOfUncoveredTargetSeqs.size() + " Targets are not covered yet.");
+		}
+		else if (setOfUncoveredTargetSeqs.size() > 0) {
 			System.out.println(setOfUncoveredTargetSeqs.size() + " Targets are uncoverable, under the three types of constraints!");
-			System.out.println("  Unable to cover target sequences : " + setOfUncoveredTargetSeqs.toString());
+			System.out.println("  Unable to cover target sequences : " + universe.toTargetSeqs(setOfUncoveredTargetSeqs).toString());
 		}
 		else
 			System.out.println("All targets are coverable!");
@@ -164,137 +322,136 @@ public class SequenceGeneratorByAutomaton {
 		System.out.println("Elapsed Generation Time : " + (double)(genElapsedTime)/1000 + " sec " + 
 				", it part of " + "Starting Phases Time : " +  (double)(startingPhaseCumulativeTime)/1000 + " sec " + 
 				", and it part of " + "Extension Phases Time : " +  (double)(extensionPhaseCumulativeTime)/1000 + " sec ");
-	}
-	
-	// if not found in cache, dispatch the extensibility check to DFS implementation (cache is good for extensibility check)
-	private boolean isExtendable(List<String> ciSeq) {
-		
-		if (extendabilityCache.containsKey(ciSeq))
-			return extendabilityCache.get(ciSeq);
-		else {
-			// Check via Automaton: 
-			// Depth-First-Search from all possible ongoing edges of current state in Automaton, 
-			// until an acceptable path is found
-			boolean result = isExtendableViaAutomaton(ciSeq);
-			extendabilityCache.put(ciSeq, result);
-			
-			return result;
-		}
+		debugPrintln("Extendability Cache : " + extendabilityCache);
 	}
 	
 	/**
-	 * Recursively check if a CIS (Consecutive Input Sequence) is extendable via Automaton: 
-	 * If any valid test sequence can be extended from it (append any possible event based on automaton), 
-	 * or one of its extension is extendable, 
-	 * then it is extendable.
+	 * Generate a batch of at most batchSize sequences: 
+	 * starting sequences are the first uncovered feasible targets, which are disjoint, 
+	 * (or one starting sequence created by BFS if there is no feasible one), 
+	 * and they are extended concurrently against a shared set of uncovered target sequences, 
+	 * where each newly covered target is claimed atomically by exactly one sequence. 
+	 * The generated sequences are added in the order of their starting sequences.
 	 * 
-	 * @param ciSeq
-	 * @return
+	 * @return the number of generated sequences, 0 if no starting sequence can be created
 	 */
-	private boolean isExtendableViaAutomaton(List<String> ciSeq) {
-		//  in extensibility check, seq can only reach maxLength - 1
-		int maxLength = solver.getMAX_LENGTH();
-		if (ciSeq.size() >= maxLength)
-			return false;
+	private int generateBatch() {
+		TargetBitSet backupSetOfUncoveredTargetSeqs = new TargetBitSet(setOfUncoveredTargetSeqs);
 		
-		// Stop criterion as the Maximum Repetition of every event
-		Map<String, Integer> eventCounter = new HashMap<String, Integer>();
-		for (String event : ciSeq){
-			if (!eventCounter.containsKey(event))
-				eventCounter.put(event, 1);
-			else {
-				int count = eventCounter.get(event);
-				eventCounter.put(event, count+1);
-			}
+		final List<EncodedSequence> startingSequences = new ArrayList<EncodedSequence>();
+		for (int k = 0; k < batchSize; k++) {
+			long selectedTargetSeq = getFeasibilityIndex().nextFeasibleTarget(setOfUncoveredTargetSeqs);
+			if (selectedTargetSeq < 0)
+				break;
+			
+			setOfUncoveredTargetSeqs.remove(selectedTargetSeq);
+			startingSequences.add(getTargetSequence(selectedTargetSeq));
 		}
-		for (Integer count : eventCounter.values()){
-			if (count > solver.getMAX_REPETITION())
-				return false;
+		
+		if (startingSequences.isEmpty()) {
+			EncodedSequence startingSequence = startingPhase(setOfUncoveredTargetSeqs);
+			if (startingSequence == null || startingSequence.length() == 0)
+				return 0;
+			startingSequences.add(startingSequence);
 		}
 		
-		List<String> eventCandidates = new ArrayList<String>();
+		final ConcurrentTargetBitSet sharedUncoveredTargetSeqs = new ConcurrentTargetBitSet(setOfUncoveredTargetSeqs);
+		final EncodedSequence[] sequences = new EncodedSequence[startingSequences.size()];
+		new ParallelLoop(pool) {
+			@Override
+			void body(int i) {
+				sequences[i] = extensionPhase(sharedUncoveredTargetSeqs, startingSequences.get(i));
+			}
+		}.run(sequences.length);
 		
-		// Follow the automaton to extend
-		Automaton automaton = solver.getAutomaton();
-		ConstraintToAutomaton convertor = solver.getConvertor();
-		// First, since the automaton is DFA, 
-		// get the state that ciSeq arrives
-		State currentState = automaton.getInitialState(); 
-		for (String event : ciSeq) {
-			char c = convertor.mappingEventToChar(event);
-			currentState = currentState.step(c);
-			
-			if (currentState == null) {
-//				System.out.println(ciSeq + " has no matching outgoing transition on " + automaton.toDot());
-				return false;
+		setOfUncoveredTargetSeqs.retainAll(sharedUncoveredTargetSeqs.toTargetSet());
+		
+		if (isStoppedByBudget) {
+			// sequences are truncated to their last valid prefixes, or discarded if there is none, 
+			// thus the uncovered target sequences are recomputed from the backup, 
+			// and the popped starting targets may be popped again
+			setOfUncoveredTargetSeqs.addAll(backupSetOfUncoveredTargetSeqs);
+			getFeasibilityIndex().rewind();
+			for (EncodedSequence sequence : sequences) {
+				if (sequence != null)
+					setOfUncoveredTargetSeqs.removeAll(getNewlyCoveredSubseqs(setOfUncoveredTargetSeqs, sequence));
 			}
 		}
 		
-		// Second, add all ongoing edges of this state into candidates
-		for (Transition transition : currentState.getTransitions()) {
-			char[] chars = new char[transition.getMax() - transition.getMin() + 1];
-			int i = 0;
-			for (char c = transition.getMin(); c <= transition.getMax(); c++)
-				chars[i++] = c;
+		int numberOfSequences = 0;
+		for (EncodedSequence sequence : sequences) {
+			if (sequence == null)
+				continue;
+			numberOfSequences++;
+			
+			List<String> testSequence = alphabet.decode(sequence.getEventIndices());
+			setOfTestSequences.add(testSequence);
 			
-			eventCandidates.addAll(convertor.mappingCharArrayToSequence(chars));
+			debugPrintln("Generated Sequence : ");
+			debugPrintln(testSequence.toString());
 		}
+		return numberOfSequences;
+	}
+	
+	// if not found in cache, dispatch the extensibility check to DFS implementation (cache is good for extensibility check)
+	boolean isExtendable(SequenceCursor cursor) {
+		if (cursor.isDead())
+			return false;
 		
-		for (int i = 0; i < eventCandidates.size(); i++){
-			List<String> tempSequence = new ArrayList<String>(ciSeq);
-			String event = eventCandidates.get(i);
-			tempSequence.add(event);
+		Boolean cachedResult = extendabilityCache.get(cursor, solver.getMAX_LENGTH());
+		if (cachedResult != null)
+			return cachedResult;
+		else {
+			budget.chargeExtendabilitySearch();
 			
-			if (isValid(tempSequence)) {
-//				System.out.println("Valid sequence during extensibility checking: " + tempSequence);
-				return true;
-			}
-			else {
-//				System.out.println("Invalid Sequence for extensibility checking: " + tempSequence);
-				
-				if (isExtendableViaAutomaton(tempSequence))
-					return true;
-			}
+			// Check via Automaton: 
+			// from the state of ciSeq, check if an accepting state is reachable within the remaining length
+			boolean result = isExtendableViaAutomaton(cursor);
+			extendabilityCache.put(cursor, solver.getMAX_LENGTH(), result);
+			
+			return result;
+		}
+	}
+	
+	// stop at the anytime result once the budget of extensibility search is exhausted
+	boolean isExtensionExhausted() {
+		if (budget.isExtensionExhausted()) {
+			isStoppedByBudget = true;
+			return true;
 		}
-		
 		return false;
 	}
 	
+	/**
+	 * Check if a CIS (Consecutive Input Sequence) is extendable via Automaton: 
+	 * If any valid test sequence can be extended from it (append any possible event based on automaton), 
+	 * then it is extendable.
+	 * The solver decides it by the precomputed distances from automaton states to accepting states, 
+	 * instead of recursively extending the sequence one event at a time.
+	 * 
+	 * @param cursor the cursor of ciSeq
+	 * @return
+	 */
+	private boolean isExtendableViaAutomaton(SequenceCursor cursor) {
+		return solver.isExtendable(cursor);
+	}
+	
 	// dispatch the validity check to solver
-	private boolean isValid(List<String> ciSeq) {
-		return isValidOnConstraints(ciSeq);
+	private boolean isValid(SequenceCursor cursor) {
+		return isValidOnConstraints(cursor);
 	}
 	
 	/**
 	 * check a CIS (Consecutive Input Sequence) is valid 
 	 * if ciSeq satisfy all constraints and not exceed length limitation, then it is valid.  
 	 * 
-	 * @param ciSeq
+	 * @param cursor the cursor of ciSeq
 	 * @return
 	 */
-	private boolean isValidOnConstraints(List<String> ciSeq) {
-		//  in validity check, seq can reach maxLength
-		int maxLength = solver.getMAX_LENGTH();
-		if (ciSeq.size() > maxLength)
-			return false;
-		
-		// Stop criterion as the Maximum Repetition of every event
-		Map<String, Integer> eventCounter = new HashMap<String, Integer>();
-		for (String event : ciSeq){
-			if (!eventCounter.containsKey(event))
-				eventCounter.put(event, 1);
-			else {
-				int count = eventCounter.get(event);
-				eventCounter.put(event, count+1);
-			}
-		}
-		for (Integer count : eventCounter.values()){
-			if (count > solver.getMAX_REPETITION())
-				return false;
-		}
-		
-		// use SolverByAutomaton to check its validity.
-		boolean isValidCCSeq = solver.solve(ciSeq);
+	private boolean isValidOnConstraints(SequenceCursor cursor) {
+		// use the cursor stepped in SolverByAutomaton to check its validity, 
+		// including that seq can reach maxLength and not exceed the Maximum Repetition of every event.
+		boolean isValidCCSeq = cursor.isValid();
 			
 		return isValidCCSeq;
 	}
@@ -306,9 +463,9 @@ public class SequenceGeneratorByAutomaton {
 	 *	
 	 * @param uncoveredSubseqs
 	 * @param sequence
-	 * @return
+	 * @return the complete sequence, or its last valid prefix (null if none) when the budget is exhausted
 	 */
-	private List<String> extensionPhase(Set<List<String>> uncoveredSubseqs, List<String> sequence, int lookAheadWindow) {
+	private EncodedSequence extensionPhase(final TargetBitSet uncoveredSubseqs, EncodedSequence sequence, int lookAheadWindow) {
 		int window = lookAheadWindow; // window size for break-tie on either maxCoverage > 0 or maxCoverage = 0
 		if (window < 0)
 			return sequence;
@@ -316,116 +473,429 @@ public class SequenceGeneratorByAutomaton {
 //		if (uncoveredSubseqs.size() == 0) // Bug: the last generated sequence may be in-complete if all subseqs are covered
 //			return sequence;
 		// Fix: only return when all subseqs are covered and this sequence is complete
-		if (uncoveredSubseqs.size() == 0 && isValid(sequence))
+		SequenceCursor cursor = getCursor(sequence);
+		if (uncoveredSubseqs.size() == 0 && isValid(cursor))
 			return sequence;
 		
+		// The covered prefixes of the sequence are maintained incrementally, 
+		// so that the new coverage of an appended event is computed without rescanning all uncovered target sequences.
+		// Note that no uncovered target sequence is covered by the sequence itself at this point.
+		CoverageState coverageState = CoverageState.of(universe, sequence.toArray());
+		
 		// If the seq is extendable, meanings at least one path extending to complete test is found. 
 		// Here we can place a cache mechanism to save time for the extensibility check of its extension.
-		while (isExtendable(sequence)){
+		EncodedSequence lastValidSequence = null;
+		while (isExtendable(cursor)){
+			// anytime result: stop at the last valid prefix once the budget of extensibility search is exhausted
+			if (isValid(cursor))
+				lastValidSequence = sequence;
+			if (budget.isExtensionExhausted()) {
+				isStoppedByBudget = true;
+				return lastValidSequence;
+			}
+			
 			int maxCoverage = -1; // there may happens that all extensions newlyCoverage = 0, but some of them can derive coverage in next event
 			int maxIndex = -1;
-			List<String> maxExtendedSequence = null;
-			Set<List<String>> maxNewlyCoveredSubseqs = null;
+			SequenceCursor maxExtendedCursor = null;
 			
-			for (int i = 0; i < listOfEvents.size(); i++){
-				List<String> extendedSequence = new ArrayList<String>(sequence);
-				extendedSequence.add(listOfEvents.get(i));
+			if (window > 1) {
+				// break tie by looking ahead window - 1 events
+				maxIndex = chooseEventWithLookAhead(uncoveredSubseqs, coverageState, cursor, window);
+				maxExtendedCursor = cursor.append(maxIndex);
+			}
+			else if (pool != null) {
+				// all candidates are evaluated in parallel, then reduced to the first event of max coverage in event order, 
+				// which is the same event as chosen in sequential mode
+				final int[] coverages = new int[listOfEvents.size()];
+				final SequenceCursor[] extendedCursors = new SequenceCursor[listOfEvents.size()];
+				final CoverageState currentCoverageState = coverageState;
+				final SequenceCursor currentCursor = cursor;
+				new ParallelLoop(pool) {
+					@Override
+					void body(int i) {
+						// coverage state and uncovered target sequences are only read during evaluation
+						coverages[i] = currentCoverageState.countNewlyCovered(i, uncoveredSubseqs);
+						SequenceCursor extendedCursor = currentCursor.append(i);
+						if (isValid(extendedCursor) || isExtendable(extendedCursor))
+							extendedCursors[i] = extendedCursor;
+					}
+				}.run(listOfEvents.size());
 				
-				/* Only check new coverage with next event */
-				// If the CISequence extended by new event is checked to be valid or extendable, 
-				// then enumerate the number of newly covered target sequences (in-consecutive)
-				Set<List<String>> newlyCoveredSubseqs = new LinkedHashSet<List<String>>();
-				for (List<String> subseq : uncoveredSubseqs){
-					if (true == isCovered(extendedSequence, subseq)){
-						newlyCoveredSubseqs.add(subseq);
+				for (int i = 0; i < listOfEvents.size(); i++){
+					if (extendedCursors[i] != null && coverages[i] > maxCoverage) {
+						maxCoverage = coverages[i];
+						maxIndex = i;
+						maxExtendedCursor = extendedCursors[i];
 					}
 				}
+			}
+			
+			else {
+				for (int i = 0; i < listOfEvents.size(); i++){
+					/* Only check new coverage with next event */
+					// If the CISequence extended by new event is checked to be valid or extendable, 
+					// then count the number of newly covered target sequences (in-consecutive)
+					int coverage = coverageState.countNewlyCovered(i, uncoveredSubseqs);
 				
-//				System.out.println(extendedSequence);
-				
-				int coverage = newlyCoveredSubseqs.size();
+					// the first event of max coverage is kept on tie, which is broken by look-ahead only if window > 1
+					if (coverage > maxCoverage) {
+						// check valid and extendable after calculated coverage, 
+						// by stepping the cursor of sequence with only the appended event
+						SequenceCursor extendedCursor = cursor.append(i);
+						if (isValid(extendedCursor) || isExtendable(extendedCursor)){	
+							maxCoverage = coverage;
+							maxIndex = i; // store event index i for max coverage
+							maxExtendedCursor = extendedCursor;
+						}
+					}
+				}
+			}
+			
+			// greedily choose the event that achieve local max coverage (the extendable sequence has at least one valid or extendable event),
+			// and continue to extend current CISequence with updated set of uncovered target sequences.
+			// Note that max newly coverage may be 0, but it is possible to cover new target by appending one more event.
+			TargetBitSet maxNewlyCoveredSubseqs = universe.newTargetSet();
+			coverageState.collectNewlyCovered(maxIndex, uncoveredSubseqs, maxNewlyCoveredSubseqs);
+			uncoveredSubseqs.removeAll(maxNewlyCoveredSubseqs);
+			coverageState.append(maxIndex);
+			
+			// only the chosen event is appended to the sequence, instead of copying the sequence for every candidate
+			sequence = sequence.append(maxIndex);
+			cursor = maxExtendedCursor;
+		}
+
+		return sequence;
+	}
+	
+	/**
+	 * Greedy extension of sequence in a batch, without look-ahead: 
+	 * the coverage of each candidate event is counted on the shared uncovered target sequences, 
+	 * and the targets newly covered by the chosen event are claimed, except the ones claimed by other sequences meanwhile.
+	 * 
+	 * @param uncoveredSubseqs uncovered target sequences shared by the batch
+	 * @param sequence
+	 * @return the complete sequence, or its last valid prefix (null if none) when the budget is exhausted
+	 */
+	private EncodedSequence extensionPhase(ConcurrentTargetBitSet uncoveredSubseqs, EncodedSequence sequence) {
+		SequenceCursor cursor = getCursor(sequence);
+		if (uncoveredSubseqs.isEmpty() && isValid(cursor))
+			return sequence;
+		
+		CoverageState coverageState = CoverageState.of(universe, sequence.toArray());
+		
+		EncodedSequence lastValidSequence = null;
+		while (isExtendable(cursor)){
+			// anytime result: stop at the last valid prefix once the budget of extensibility search is exhausted
+			if (isValid(cursor))
+				lastValidSequence = sequence;
+			if (budget.isExtensionExhausted()) {
+				isStoppedByBudget = true;
+				return lastValidSequence;
+			}
+			
+			int maxCoverage = -1;
+			int maxIndex = -1;
+			SequenceCursor maxExtendedCursor = null;
+			
+			for (int i = 0; i < listOfEvents.size(); i++){
+				int coverage = coverageState.countNewlyCovered(i, uncoveredSubseqs);
 				if (coverage > maxCoverage) {
-					// check valid and extendable after calculated coverage
-					if (isValid(extendedSequence) || isExtendable(extendedSequence)){	
+					SequenceCursor extendedCursor = cursor.append(i);
+					if (isValid(extendedCursor) || isExtendable(extendedCursor)){
 						maxCoverage = coverage;
-						maxIndex = i; // store event index i for max coverage
-						maxExtendedSequence = extendedSequence;
-						maxNewlyCoveredSubseqs = newlyCoveredSubseqs;
+						maxIndex = i;
+						maxExtendedCursor = extendedCursor;
 					}
 				}
-				else if (coverage == maxCoverage) {
-					/* TODO: break tie */
-					// If two extended sequences have the same number,
-					// then compare their next event coverage.
-//					System.out.println("break tie");
-				}
-					
 			}
 			
-			if (maxIndex > -1){
-				// greedily choose the event that achieve local max coverage (maxCoverage > 0),
-				// and continue to extend current CISequence with updated set of uncovered target sequences.
-				uncoveredSubseqs.removeAll(maxNewlyCoveredSubseqs);
+			coverageState.claimNewlyCovered(maxIndex, uncoveredSubseqs);
+			coverageState.append(maxIndex);
+			
+			sequence = sequence.append(maxIndex);
+			cursor = maxExtendedCursor;
+		}
+		
+		return sequence;
+	}
+	
+	/**
+	 * Among the valid or extendable candidate events of max coverage, choose the one whose best extension 
+	 * by the next (window - 1) valid or extendable events newly covers the most targets, and the first one in event order if tie.
+	 * The coverage of look-ahead extensions is computed incrementally by appending to a copy of coverage state per candidate 
+	 * and undoing on return, and their validity and extensibility are checked by stepping cursors, with the extendability cache.
+	 * The look-ahead coverage of a path is memoized within the call by its solver state, the prefixes and targets it covers, and the remaining depth, 
+	 * so that paths of the same events in different orders are not searched again.
+	 * 
+	 * @param uncoveredSubseqs
+	 * @param coverageState coverage of the current sequence
+	 * @param cursor cursor of the current sequence
+	 * @param window look-ahead window size > 1
+	 * @return the chosen event index
+	 */
+	private int chooseEventWithLookAhead(final TargetBitSet uncoveredSubseqs, final CoverageState coverageState, final SequenceCursor cursor, final int window) {
+		final int numberOfEvents = listOfEvents.size();
+		final int[] coverages = new int[numberOfEvents];
+		final SequenceCursor[] extendedCursors = new SequenceCursor[numberOfEvents];
+		new ParallelLoop(pool) {
+			@Override
+			void body(int i) {
+				coverages[i] = coverageState.countNewlyCovered(i, uncoveredSubseqs);
+				SequenceCursor extendedCursor = cursor.append(i);
+				if (isValid(extendedCursor) || isExtendable(extendedCursor))
+					extendedCursors[i] = extendedCursor;
+			}
+		}.run(numberOfEvents);
+		
+		int maxCoverage = -1;
+		for (int i = 0; i < numberOfEvents; i++) {
+			if (extendedCursors[i] != null && coverages[i] > maxCoverage)
+				maxCoverage = coverages[i];
+		}
+		
+		final int tiedCoverage = maxCoverage;
+		final int[] lookAheadCoverages = new int[numberOfEvents];
+		// shared by the candidates, since the keys are relative to the same current sequence
+		final Map<LookAheadKey, Integer> memo = new ConcurrentHashMap<LookAheadKey, Integer>();
+		new ParallelLoop(pool) {
+			@Override
+			void body(int i) {
+				if (extendedCursors[i] == null || coverages[i] != tiedCoverage)
+					return;
 				
-				sequence = maxExtendedSequence;
+				// targets covered by the candidate itself are not counted again in look-ahead
+				LookAheadPath path = new LookAheadPath(uncoveredSubseqs, coverageState, memo);
+				path.append(i);
+				lookAheadCoverages[i] = path.lookAhead(extendedCursors[i], window - 1);
 			}
-			else{
-				// max newly coverage = 0, but it is possible to cover new target by appending one more event
-				sequence = maxExtendedSequence;
+		}.run(numberOfEvents);
+		
+		int maxIndex = -1;
+		for (int i = 0; i < numberOfEvents; i++) {
+			if (extendedCursors[i] != null && coverages[i] == tiedCoverage 
+					&& (maxIndex < 0 || lookAheadCoverages[i] > lookAheadCoverages[maxIndex]))
+				maxIndex = i;
+		}
+		return maxIndex;
+	}
+	
+	/**
+	 * a look-ahead path from the current sequence, whose coverage is updated in place on appending and undone on return
+	 */
+	private class LookAheadPath {
+		private final TargetBitSet uncoveredSubseqs;
+		private final CoverageState coverageState; // coverage of the current sequence and the path
+		private final Map<LookAheadKey, Integer> memo;
+		
+		// uncovered targets which are covered by the path, as a set and as a stack for undoing
+		private final TargetBitSet coveredInLookAhead = universe.newTargetSet();
+		private long[] newlyCoveredSubseqs = new long[16];
+		private int numberOfNewlyCovered = 0;
+		
+		LookAheadPath(TargetBitSet uncoveredSubseqs, CoverageState coverageState, Map<LookAheadKey, Integer> memo) {
+			this.uncoveredSubseqs = uncoveredSubseqs;
+			this.coverageState = new CoverageState(coverageState);
+			this.memo = memo;
+		}
+		
+		/**
+		 * append an event to the path
+		 * 
+		 * @param event event index
+		 * @return the number of uncovered targets newly covered by the path
+		 */
+		int append(int event) {
+			int n = listOfEvents.size();
+			int numberOfCovered = numberOfNewlyCovered;
+			TargetBitSet prefixes = coverageState.getCoveredPrefixes(universe.getStrength() - 1);
+			for (long p = prefixes.nextRank(0); p >= 0; p = prefixes.nextRank(p + 1)) {
+				long rank = p * n + event;
+				if (uncoveredSubseqs.contains(rank) && !coveredInLookAhead.contains(rank)) {
+					coveredInLookAhead.add(rank);
+					if (numberOfNewlyCovered == newlyCoveredSubseqs.length)
+						newlyCoveredSubseqs = Arrays.copyOf(newlyCoveredSubseqs, 2 * newlyCoveredSubseqs.length);
+					newlyCoveredSubseqs[numberOfNewlyCovered++] = rank;
+				}
 			}
+			coverageState.appendUndoable(event);
+			return numberOfNewlyCovered - numberOfCovered;
+		}
+		
+		/**
+		 * remove the last event from the path
+		 * 
+		 * @param numberOfCovered the number of targets newly covered by the event
+		 */
+		void undo(int numberOfCovered) {
+			coverageState.undoAppend();
+			for (int k = 0; k < numberOfCovered; k++)
+				coveredInLookAhead.remove(newlyCoveredSubseqs[--numberOfNewlyCovered]);
+		}
+		
+		/**
+		 * @param cursor cursor of the current sequence and the path
+		 * @param depth max number of events to look ahead
+		 * @return the max number of uncovered targets newly covered by appending at most depth valid or extendable events
+		 */
+		int lookAhead(SequenceCursor cursor, int depth) {
+			if (depth == 0 || !isExtendable(cursor))
+				return 0;
+			
+			long[] coveredTargets = Arrays.copyOf(newlyCoveredSubseqs, numberOfNewlyCovered);
+			Arrays.sort(coveredTargets);
+			LookAheadKey key = new LookAheadKey(cursor, coverageState.getAddedPrefixes(), coveredTargets, depth);
+			Integer memoized = memo.get(key);
+			if (memoized != null)
+				return memoized;
+			
+			int maxCoverage = 0;
+			for (int i = 0; i < listOfEvents.size(); i++) {
+				SequenceCursor extendedCursor = cursor.append(i);
+				if (!isValid(extendedCursor) && !isExtendable(extendedCursor))
+					continue;
+				
+				int numberOfCovered = append(i);
+				int coverage = numberOfCovered;
+				if (depth > 1)
+					coverage += lookAhead(extendedCursor, depth - 1);
+				undo(numberOfCovered);
+				
+				if (coverage > maxCoverage)
+					maxCoverage = coverage;
+			}
+			
+			memo.put(key, maxCoverage);
+			return maxCoverage;
 		}
-
-		return sequence;
 	}
 	
 	/* Iterative BFS: search in level L and a node's L+1, for startingPhase to create starting test sequence (BFS)
 	 * 
 	 * FirstMatch: (1) L.cov > 0; or (2) L.cov = 0 && (L + 1).cov > 0 and so on.
 	 * 
+	 * The BFS is level-synchronous: all nodes of a level are evaluated (in parallel in parallel mode), 
+	 * and then the first matched node is returned in the same order as a FIFO queue. 
+	 * Among the nodes to be expanded, a node is dominated by an earlier node with the same automaton state, 
+	 * repetition of every event, and a superset of its covered prefixes, 
+	 * since each descendant of the earlier node is valid/extendable as the corresponding descendant of the dominated one, 
+	 * and covers at least the same targets, and comes earlier in BFS order.  
+	 * Thus dominated nodes are not expanded, which does not change the FirstMatch.
+	 * Nodes of the same state and repetitions but incomparable covered prefixes are bounded by the number of states.
+	 * 
 	 * @param uncoveredSubseqs
-	 * @param sequence
-	 * @return
+	 * @param frontier nodes of the first level in BFS order
+	 * @return the first matched sequence, or null if there is none or the budget of search nodes is exhausted
 	 */
-	private List<String> genStartingSeqInBFS(Set<List<String>> uncoveredSubseqs, Queue<List<String>> queue) {
+	private EncodedSequence genStartingSeqInBFS(final TargetBitSet uncoveredSubseqs, List<SearchNode> frontier) {
+		final int numberOfEvents = listOfEvents.size();
 		
-		while(!queue.isEmpty()){
+		while(!frontier.isEmpty()){
+			final List<SearchNode> level = frontier;
+			if (!budget.chargeSearchNodes(level.size())) {
+				isStoppedByBudget = true;
+				return null;
+			}
 			
-			List<String> sequence = queue.poll();
-				
-			/* check coverage */
-			Set<List<String>> newlyCoveredSubseqs = new LinkedHashSet<List<String>>();
-			for (List<String> subseq : uncoveredSubseqs){
-				if (true == isCovered(sequence, subseq)){
-					newlyCoveredSubseqs.add(subseq);
+			/* check coverage, validity and extensibility of each node in the level */
+			new ParallelLoop(pool) {
+				@Override
+				void body(int i) {
+					SearchNode node = level.get(i);
+					if (node.coverage > 0) {
+						// check valid and extendable after calculated coverage
+						node.isMatched = isValid(node.cursor) || isExtendable(node.cursor);
+					}
+					else if (isExtendable(node.cursor)) { // coverage = 0
+						node.isExpandable = true;
+						node.materializeCoverageState(universe);
+					}
+				}
+			}.run(level.size());
+			
+			for (SearchNode node : level) {
+				if (node.isMatched) {
+					uncoveredSubseqs.removeAll(getNewlyCoveredSubseqs(uncoveredSubseqs, node.sequence));
+					return node.sequence;
 				}
 			}
 			
-	//		System.out.println(sequence);
+			// all extendable sequences in level L are coverage = 0, so have to extend all extendable ones, 
+			// except the ones dominated by an earlier node
+			final List<SearchNode> parents = new ArrayList<SearchNode>();
+			Map<SolverState, List<SearchNode>> mapSolverStatesToParents = new HashMap<SolverState, List<SearchNode>>();
+			for (SearchNode node : level) {
+				if (!node.isExpandable)
+					continue;
+				
+				SolverState solverState = new SolverState(node.cursor);
+				List<SearchNode> parentsOfSolverState = mapSolverStatesToParents.get(solverState);
+				if (parentsOfSolverState == null) {
+					parentsOfSolverState = new ArrayList<SearchNode>();
+					mapSolverStatesToParents.put(solverState, parentsOfSolverState);
+				}
 				
-			int coverage = newlyCoveredSubseqs.size();
-			if (coverage > 0) {
-				// check valid and extendable after calculated coverage
-				if (isValid(sequence) || isExtendable(sequence)){
-					uncoveredSubseqs.removeAll(newlyCoveredSubseqs);
-					return sequence;
+				boolean isDominated = false;
+				for (SearchNode parent : parentsOfSolverState) {
+					if (node.coverageState.isDominatedBy(parent.coverageState)) {
+						isDominated = true;
+						break;
+					}
+				}
+				if (!isDominated) {
+					parentsOfSolverState.add(node);
+					parents.add(node);
 				}
 			}
-			else { // coverage = 0
-				// all extendable sequences in level L are coverage = 0, so have to extend all extendable ones
-				if (isExtendable(sequence)){
-					for (int k=0; k<listOfEvents.size(); k++){
-						List<String> extendedSequence = new ArrayList<String>(sequence);
-						extendedSequence.add(listOfEvents.get(k));
+			
+			final SearchNode[] children = new SearchNode[parents.size() * numberOfEvents];
+			new ParallelLoop(pool) {
+				@Override
+				void body(int i) {
+					SearchNode parent = parents.get(i);
+					for (int k=0; k<numberOfEvents; k++){
+						// a dead sequence is neither valid nor extendable, it can never be matched or expanded
+						SequenceCursor extendedCursor = parent.cursor.append(k);
+						if (extendedCursor.isDead())
+							continue;
 						
-						queue.offer(extendedSequence);
+						// only the targets ending at the appended event can be newly covered, since parent covers none
+						int coverage = parent.coverageState.countNewlyCovered(k, uncoveredSubseqs);
+						children[i * numberOfEvents + k] = new SearchNode(parent.sequence.append(k), extendedCursor, coverage, parent.coverageState);
 					}
 				}
+			}.run(parents.size());
+			
+			frontier = new ArrayList<SearchNode>();
+			for (SearchNode child : children) {
+				if (child != null)
+					frontier.add(child);
 			}
 		}
 		
 		return null;
 	}
 	
+	/**
+	 * enumerate the uncovered target sequences which are covered by a sequence (in-consecutive)
+	 * 
+	 * @param uncoveredSubseqs
+	 * @param sequence
+	 * @return the set of newly covered target sequences
+	 */
+	private TargetBitSet getNewlyCoveredSubseqs(TargetBitSet uncoveredSubseqs, EncodedSequence sequence) {
+		TargetBitSet newlyCoveredSubseqs = universe.newTargetSet();
+		
+		// collect the targets covered at each position of the sequence, by the covered prefixes before it
+		CoverageState coverageState = new CoverageState(universe);
+		for (int i = 0; i < sequence.length(); i++){
+			int eventIndex = sequence.get(i);
+			coverageState.collectNewlyCovered(eventIndex, uncoveredSubseqs, newlyCoveredSubseqs);
+			coverageState.append(eventIndex);
+		}
+		
+		return newlyCoveredSubseqs;
+	}
+	
 	/**
 	 * check if a sequence covers a subseq or not
 	 * 
@@ -437,23 +907,27 @@ public class SequenceGeneratorByAutomaton {
 		if (sequence.size() < subseq.size())
 			return false;
 		
-		int i=0;
+		// single pass with two pointers: 
+		// j moves to the next event of subseq whenever it is matched by the event i in the sequence
 		int j=0;
-		List<String> sequenceRightPart = new ArrayList<String>(sequence);
-		for (; i<subseq.size(); i++){
-			if (true == sequenceRightPart.contains(subseq.get(i))) {
-				j = sequenceRightPart.indexOf(subseq.get(i)) + 1; // choose the right part after covered event
-				sequenceRightPart = sequenceRightPart.subList(j, sequenceRightPart.size());
-			}
-			else
-				return false;
+		for (int i=0; i<sequence.size() && j<subseq.size(); i++){
+			if (sequence.get(i).equals(subseq.get(j)))
+				j++;
 		}
 		
 		// all events in the subseq can be found at the sequence in the same order 
-		if (i == subseq.size())
-			return true;
-
-		return false;
+		return j == subseq.size();
+	}
+	
+	/**
+	 * check if an encoded sequence covers a subseq of event indices or not, without allocation
+	 * 
+	 * @param sequence
+	 * @param subseq
+	 * @return
+	 */
+	public boolean isCovered(EncodedSequence sequence, int[] subseq) {
+		return sequence.covers(subseq);
 	}
 	
 	/**
@@ -467,8 +941,177 @@ public class SequenceGeneratorByAutomaton {
 	 * @return the setOfUncoveredTargetSeqs
 	 */
 	public Set<List<String>> getSetOfUncoveredTargetSeqs() {
+		return universe.toTargetSeqs(setOfUncoveredTargetSeqs);
+	}
+	
+	/**
+	 * @return the ranks of uncovered target sequences in the universe
+	 */
+	public TargetBitSet getUncoveredTargets() {
 		return setOfUncoveredTargetSeqs;
 	}
+	
+	/**
+	 * @return the extendabilityCache, with its hit, miss and eviction counters
+	 */
+	public ExtendabilityCache getExtendabilityCache() {
+		return extendabilityCache;
+	}
+	
+	/**
+	 * @param capacity the maximum number of cached extensibility results, 0 to disable caching
+	 */
+	public void setExtendabilityCacheCapacity(int capacity) {
+		extendabilityCache.setCapacity(capacity);
+	}
+	
+	/**
+	 * @return the budget of generation, with its counters of the last generation
+	 */
+	public GenerationBudget getBudget() {
+		return budget;
+	}
+	
+	/**
+	 * @param millis deadline of the whole generation in milliseconds, after which the test sequences generated so far are kept
+	 */
+	public void setTimeBudget(long millis) {
+		budget.setTimeLimit(millis);
+	}
+	
+	/**
+	 * @param maxSearchNodes the number of nodes evaluated in the BFS of starting phases
+	 */
+	public void setStartingPhaseBudget(long maxSearchNodes) {
+		budget.setMaxSearchNodes(maxSearchNodes);
+	}
+	
+	/**
+	 * @param maxExtendabilitySearches the number of extensibility searches not answered by the extendability cache
+	 */
+	public void setExtendabilitySearchBudget(long maxExtendabilitySearches) {
+		budget.setMaxExtendabilitySearches(maxExtendabilitySearches);
+	}
+	
+	/**
+	 * @return true if the last generation is stopped by budget, 
+	 * then the generated test sequences are valid but some coverable target sequences may be uncovered
+	 */
+	public boolean isStoppedByBudget() {
+		return isStoppedByBudget;
+	}
+	
+	/**
+	 * @param lookAheadWindowSize 1 to greedily choose the first event of max coverage, 
+	 * or k > 1 to break tie by the max coverage of the next k - 1 events
+	 */
+	public void setLookAheadWindowSize(int lookAheadWindowSize) {
+		if (lookAheadWindowSize < 1)
+			throw new IllegalArgumentException("Look-ahead window size " + lookAheadWindowSize + " should be at least 1!");
+		this.lookAheadWindowSize = lookAheadWindowSize;
+	}
+	
+	public int getLookAheadWindowSize() {
+		return lookAheadWindowSize;
+	}
+	
+	/**
+	 * In batch mode, at most batchSize sequences are extended concurrently from disjoint starting targets 
+	 * (on the fork-join pool in parallel mode), sharing the uncovered target sequences. 
+	 * The generated test sequences differ from those of batchSize = 1, 
+	 * and in parallel mode, they may differ between runs, as targets are claimed by whichever sequence covers them first.
+	 * 
+	 * @param batchSize 1 to generate one sequence at a time, or k > 1 for batches of k sequences
+	 */
+	public void setBatchSize(int batchSize) {
+		if (batchSize < 1)
+			throw new IllegalArgumentException("Batch size " + batchSize + " should be at least 1!");
+		this.batchSize = batchSize;
+	}
+	
+	public int getBatchSize() {
+		return batchSize;
+	}
+	
+	/**
+	 * @return the coverability of all target sequences, which is analyzed at the first call
+	 */
+	public CoverabilityAnalysis getCoverabilityAnalysis() {
+		if (coverabilityAnalysis == null)
+			coverabilityAnalysis = new CoverabilityAnalysis(universe, solver, backupSetOfTwaySequence);
+		return coverabilityAnalysis;
+	}
+	
+	/**
+	 * @return the target sequences which can not be covered by any valid test sequence, available before generation
+	 */
+	public Set<List<String>> getSetOfUncoverableTargetSeqs() {
+		return universe.toTargetSeqs(getCoverabilityAnalysis().getUncoverableTargets());
+	}
+	
+	/**
+	 * With the coverability pre-pass, generation only targets coverable target sequences. 
+	 * The generated test sequences are the same as those without it.
+	 * 
+	 * @param isCoverabilityPrepass
+	 */
+	public void setCoverabilityPrepass(boolean isCoverabilityPrepass) {
+		this.isCoverabilityPrepass = isCoverabilityPrepass;
+	}
+	
+	/**
+	 * With the suite reduction, redundant test sequences are removed after generation, 
+	 * and the remaining ones cover the same target sequences.
+	 * 
+	 * @param isSuiteReduction
+	 */
+	public void setSuiteReduction(boolean isSuiteReduction) {
+		this.isSuiteReduction = isSuiteReduction;
+	}
+	
+	/**
+	 * @return the reducer of the last generation with suite reduction, with the number of removed sequences and events
+	 */
+	public SuiteReducer getSuiteReducer() {
+		return suiteReducer;
+	}
+	
+	/**
+	 * In parallel mode, candidate events in extension phase and nodes of each BFS level in starting phase 
+	 * are evaluated on a fork-join pool. 
+	 * The generated test sequences are the same as those in sequential mode.
+	 * 
+	 * @param isParallelMode
+	 */
+	public void setParallelMode(boolean isParallelMode) {
+		if (isParallelMode && pool == null)
+			pool = new ForkJoinPool();
+		else if (!isParallelMode && pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
+	
+	public boolean isParallelMode() {
+		return pool != null;
+	}
+	
+	// the fork-join pool in parallel mode, or null in sequential mode
+	ForkJoinPool getPool() {
+		return pool;
+	}
+	
+	// beam search is called back instead of the extension phase
+	void setBeamSearch(BeamSequenceGenerator beamSearch) {
+		this.beamSearch = beamSearch;
+	}
+	
+	/**
+	 * @return the universe of t-way target sequences
+	 */
+	public TargetUniverse getUniverse() {
+		return universe;
+	}
 
 	private void debugPrintln(String str)
 	{
@@ -482,5 +1125,92 @@ public class SequenceGeneratorByAutomaton {
 	public void setDebugMode(boolean isDebugMode) {
 		this.isDebugMode = isDebugMode;
 	}
+	
+	// a sequence in BFS, with its cursor in solver and its coverage
+	private static class SearchNode {
+		final EncodedSequence sequence;
+		final SequenceCursor cursor;
+		final int coverage; // the number of uncovered target sequences covered by the sequence
+		
+		CoverageState parentCoverageState; // null for the first level, released once coverageState is materialized
+		CoverageState coverageState; // covered prefixes, only materialized for nodes to be expanded
+		
+		boolean isMatched = false; // coverage > 0, and valid or extendable
+		boolean isExpandable = false; // coverage = 0, and extendable
+		
+		SearchNode(EncodedSequence sequence, SequenceCursor cursor, int coverage, CoverageState parentCoverageState) {
+			this.sequence = sequence;
+			this.cursor = cursor;
+			this.coverage = coverage;
+			this.parentCoverageState = parentCoverageState;
+		}
+		
+		void materializeCoverageState(TargetUniverse universe) {
+			if (parentCoverageState == null)
+				coverageState = CoverageState.of(universe, sequence.getEventIndices());
+			else {
+				coverageState = new CoverageState(parentCoverageState);
+				coverageState.append(sequence.get(sequence.length() - 1));
+				parentCoverageState = null;
+			}
+		}
+	}
+	
+	// automaton state and repetition of every event, which decide validity and extensibility of all extensions
+	private static class SolverState {
+		private final int state;
+		private final int[] eventCounts; // shared with the cursor
+		
+		SolverState(SequenceCursor cursor) {
+			state = cursor.getState();
+			eventCounts = cursor.getEventCounts();
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof SolverState))
+				return false;
+			
+			SolverState other = (SolverState) obj;
+			return state == other.state && Arrays.equals(eventCounts, other.eventCounts);
+		}
+		
+		@Override
+		public int hashCode() {
+			return 31 * state + Arrays.hashCode(eventCounts);
+		}
+	}
+	
+	// a look-ahead path from the current sequence, the same key has the same look-ahead coverage
+	private static class LookAheadKey {
+		private final SolverState solverState;
+		private final long[] addedPrefixes; // prefixes covered by the path but not by the current sequence
+		private final long[] coveredTargets; // uncovered targets covered by the path
+		private final int depth; // the length of the path is determined by the remaining depth
+		
+		LookAheadKey(SequenceCursor cursor, long[] addedPrefixes, long[] coveredTargets, int depth) {
+			solverState = new SolverState(cursor);
+			this.addedPrefixes = addedPrefixes;
+			this.coveredTargets = coveredTargets;
+			this.depth = depth;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof LookAheadKey))
+				return false;
+			
+			LookAheadKey other = (LookAheadKey) obj;
+			return depth == other.depth && solverState.equals(other.solverState) 
+					&& Arrays.equals(addedPrefixes, other.addedPrefixes) && Arrays.equals(coveredTargets, other.coveredTargets);
+		}
+		
+		@Override
+		public int hashCode() {
+			int h = 31 * solverState.hashCode() + depth;
+			h = 31 * h + Arrays.hashCode(addedPrefixes);
+			return 31 * h + Arrays.hashCode(coveredTargets);
+		}
+	}
 
 }
@@ -2,28 +2,68 @@ package generator;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import util.EventAlphabet;
+
 /**
  * enumerate subsequences as the t-way target sequence candidates 
  * 
  * @author Feng Duan
  *
  */
-public class Subsequences {
+public class Subsequences implements Iterable<List<String>> {
 	
 	private List<String> listOfEvents;
 	private Set<List<String>> setOfTwaySubseqs;
+	
+	private int strength;
+	private int maxRepetition;
 
 	public Subsequences(String[] events, int t, int maxRepetition) {
+		this(events, t, maxRepetition, false);
+	}
+	
+	/**
+	 * @param events
+	 * @param t strength of subsequences
+	 * @param maxRepetition repetition constraint
+	 * @param isLazy if true, subsequences are not stored but enumerated on demand by iterator()
+	 */
+	public Subsequences(String[] events, int t, int maxRepetition, boolean isLazy) {
 		listOfEvents = new ArrayList<String>();
 		for (String event : events)
 			listOfEvents.add(event);
 		
-		setOfTwaySubseqs = new LinkedHashSet<List<String>>();
+		init(t, maxRepetition, isLazy);
+	}
+	
+	/**
+	 * @param alphabet events interned as indices, which are also the indices in subsequences
+	 * @param t strength of subsequences
+	 * @param maxRepetition repetition constraint
+	 * @param isLazy if true, subsequences are not stored but enumerated on demand by iterator()
+	 */
+	public Subsequences(EventAlphabet alphabet, int t, int maxRepetition, boolean isLazy) {
+		listOfEvents = alphabet.getEvents();
+		
+		init(t, maxRepetition, isLazy);
+	}
+	
+	private void init(int t, int maxRepetition, boolean isLazy) {
+		strength = t;
+		this.maxRepetition = maxRepetition;
+		
+		if (!isLazy)
+			setOfTwaySubseqs = enumerateTwaySubseqs();
+	}
+	
+	private Set<List<String>> enumerateTwaySubseqs() {
+		Set<List<String>> setOfTwaySubseqs = new LinkedHashSet<List<String>>();
 		
 		// Enumerate and store all t-way permutations (with repetition) of events, e.g.,
 		// given events {A, B, C, D, E} (n=5), strength (t=3), repetition <= maxRepetition (maxRepetition = 2)
@@ -35,24 +75,84 @@ public class Subsequences {
 		// [A, A, A][B, B, B][C, C, C][D, D, D][E, E, E] is invalid on repetition constraint #<=2
 		// Note that, some enumerated subsequences may be invalid due to constraints, 
 		// thus we will do validity check to only store valid subsequences.
-		ArrayList<int[]> eventPowers = getEventPowers(listOfEvents.size(), t);
-//		System.out.println(eventPowers.size());
-//		for (int[] eventCombo : eventPowers) {
-//			System.out.print("[");
-//			for (int i : eventCombo)
-//				System.out.print(i + ",");
-//			System.out.println("]");
-//		}
+		// The n^t permutations are enumerated one by one, instead of storing all of them by getEventPowers(n, t).
+		for (List<String> subseq : this)
+			setOfTwaySubseqs.add(subseq);
 		
-		for (int[] eventPower : eventPowers) {
-			List<String> subseq = new ArrayList<String>();
-			for (int eventIndex : eventPower)
-	            subseq.add(listOfEvents.get(eventIndex));
-	        
-			if (isValidOnRepetition(subseq, maxRepetition))
-				setOfTwaySubseqs.add(subseq);
-//			else 
-//				System.out.println(subseq + " is invalid on repetition constraint #<=" + maxRepetition);
+		return setOfTwaySubseqs;
+	}
+	
+	/**
+	 * Lazily enumerate the t-way subsequences which are valid on repetition constraint,
+	 * in the same order as getSetOfTwaySubseqs(). 
+	 */
+	@Override
+	public Iterator<List<String>> iterator() {
+		final TwayTargetIterator indexIterator = indexIterator();
+		
+		return new Iterator<List<String>>() {
+			@Override
+			public boolean hasNext() {
+				return indexIterator.hasNext();
+			}
+
+			@Override
+			public List<String> next() {
+				int[] eventPower = indexIterator.next();
+				
+				List<String> subseq = new ArrayList<String>(eventPower.length);
+				for (int eventIndex : eventPower)
+					subseq.add(listOfEvents.get(eventIndex));
+				return subseq;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+	
+	/**
+	 * Lazily enumerate the valid t-way subsequences as event index tuples.
+	 */
+	public TwayTargetIterator indexIterator() {
+		return new TwayTargetIterator(listOfEvents.size(), strength, maxRepetition);
+	}
+	
+	/**
+	 * Lazily enumerate the valid t-way subsequences whose ranks are in [fromRank, toRank), 
+	 * so that the n^t space can be split into parts and enumerated independently.
+	 */
+	public TwayTargetIterator indexIterator(long fromRank, long toRank) {
+		return new TwayTargetIterator(listOfEvents.size(), strength, maxRepetition, fromRank, toRank);
+	}
+	
+	// n^t, i.e., the number of all t-way permutations (with repetition) of n events
+	public static long getSizeOfEventPowers(int n, int t) {
+		long size = 1;
+		for (int i=0; i<t; i++) {
+			if (n > 0 && size > Long.MAX_VALUE / n)
+				throw new IllegalArgumentException(n + "^" + t + " is too large to enumerate!");
+			size *= n;
+		}
+		return size;
+	}
+	
+	// the rank of a tuple of event indices is its base-n encoding, 
+	// which is also its position in getEventPowers(n, t)
+	public static long rank(int[] index, int n) {
+		long rank = 0;
+		for (int i=0; i<index.length; i++)
+			rank = rank * n + index[i];
+		return rank;
+	}
+	
+	// decode the rank into the given tuple of event indices
+	public static void unrank(long rank, int n, int[] index) {
+		for (int i=index.length-1; i>=0; i--) {
+			index[i] = (int) (rank % n);
+			rank /= n;
 		}
 	}
 	
@@ -105,10 +205,22 @@ public class Subsequences {
 		return listOfEvents;
 	}
 	
+	// in lazy mode, the set is only materialized when it is asked for
 	public Set<List<String>> getSetOfTwaySubseqs(){
+		if (setOfTwaySubseqs == null)
+			setOfTwaySubseqs = enumerateTwaySubseqs();
+		
 		return setOfTwaySubseqs;
 	}
 	
+	public int getStrength(){
+		return strength;
+	}
+	
+	public int getMaxRepetition(){
+		return maxRepetition;
+	}
+	
 	public boolean isValidOnRepetition(List<String> ciSeq, int maxRepetition){
 		// Stop criterion as the Maximum Repetition of every event
 		Map<String, Integer> eventCounter = new HashMap<String, Integer>();
@@ -0,0 +1,162 @@
+package generator;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * post-generation reduction of a test suite, which keeps the coverage of target sequences.
+ *
+ * Since the greedy generator never revisits earlier sequences, the targets of an earlier sequence
+ * may all be covered by later ones. The targets covered by each sequence are computed as a bitset,
+ * then (1) a greedy set cover selects the sequence covering the most remaining targets, the shorter one if tie,
+ * and (2) a selected sequence is removed if every target of it is covered by another selected sequence,
+ * trying longer sequences first, since every removed event saves execution time.
+ * The kept sequences are in their original order.
+ *
+ * @author Feng Duan
+ *
+ */
+public class SuiteReducer {
+	private TargetUniverse universe;
+	private TargetBitSet targets;
+
+	private int numberOfRemovedSequences = 0;
+	private int numberOfRemovedEvents = 0;
+
+	/**
+	 * @param universe
+	 * @param targets the target sequences whose coverage is kept
+	 */
+	public SuiteReducer(TargetUniverse universe, TargetBitSet targets) {
+		this.universe = universe;
+		this.targets = targets;
+	}
+
+	/**
+	 * @param testSequences
+	 * @return the reduced test sequences, covering the same targets
+	 */
+	public Set<List<String>> reduce(Set<List<String>> testSequences) {
+		int m = testSequences.size();
+		int[][] sequences = new int[m][];
+		TargetBitSet[] coveredTargets = new TargetBitSet[m];
+		TargetBitSet remainingTargets = universe.newTargetSet();
+		int i = 0;
+		for (List<String> testSequence : testSequences) {
+			sequences[i] = universe.encode(testSequence);
+			coveredTargets[i] = getCoveredTargets(sequences[i]);
+			remainingTargets.addAll(coveredTargets[i]);
+			i++;
+		}
+
+		// the targets covered by any sequence in the order of ranks, 
+		// which index the counts of targets instead of their ranks, since the universe may be much larger
+		long[] coveredRanks = new long[(int) remainingTargets.size()];
+		i = 0;
+		for (long rank = remainingTargets.nextRank(0); rank >= 0; rank = remainingTargets.nextRank(rank + 1))
+			coveredRanks[i++] = rank;
+
+		/* (1) greedy set cover */
+		boolean[] isSelected = new boolean[m];
+		int[] counts = new int[coveredRanks.length]; // the number of selected sequences covering each covered target
+		while (!remainingTargets.isEmpty()) {
+			int maxIndex = -1;
+			long maxCoverage = 0;
+			for (i = 0; i < m; i++) {
+				if (isSelected[i])
+					continue;
+
+				TargetBitSet newlyCovered = new TargetBitSet(coveredTargets[i]);
+				newlyCovered.retainAll(remainingTargets);
+				long coverage = newlyCovered.size();
+				if (coverage > maxCoverage
+						|| (coverage == maxCoverage && coverage > 0 && sequences[i].length < sequences[maxIndex].length)) {
+					maxCoverage = coverage;
+					maxIndex = i;
+				}
+			}
+
+			isSelected[maxIndex] = true;
+			remainingTargets.removeAll(coveredTargets[maxIndex]);
+			for (long rank = coveredTargets[maxIndex].nextRank(0); rank >= 0; rank = coveredTargets[maxIndex].nextRank(rank + 1))
+				counts[Arrays.binarySearch(coveredRanks, rank)]++;
+		}
+
+		/* (2) remove redundant sequences, the longer ones first */
+		boolean[] isVisited = new boolean[m];
+		while (true) {
+			int longestIndex = -1;
+			for (i = 0; i < m; i++) {
+				if (isSelected[i] && !isVisited[i] && (longestIndex < 0 || sequences[i].length > sequences[longestIndex].length))
+					longestIndex = i;
+			}
+			if (longestIndex < 0)
+				break;
+
+			isVisited[longestIndex] = true;
+			TargetBitSet covered = coveredTargets[longestIndex];
+			boolean isRedundant = true;
+			for (long rank = covered.nextRank(0); rank >= 0; rank = covered.nextRank(rank + 1)) {
+				if (counts[Arrays.binarySearch(coveredRanks, rank)] < 2) {
+					isRedundant = false;
+					break;
+				}
+			}
+			if (isRedundant) {
+				isSelected[longestIndex] = false;
+				for (long rank = covered.nextRank(0); rank >= 0; rank = covered.nextRank(rank + 1))
+					counts[Arrays.binarySearch(coveredRanks, rank)]--;
+			}
+		}
+
+		Set<List<String>> reducedTestSequences = new LinkedHashSet<List<String>>();
+		numberOfRemovedSequences = 0;
+		numberOfRemovedEvents = 0;
+		i = 0;
+		for (List<String> testSequence : testSequences) {
+			if (isSelected[i])
+				reducedTestSequences.add(testSequence);
+			else {
+				numberOfRemovedSequences++;
+				numberOfRemovedEvents += testSequence.size();
+			}
+			i++;
+		}
+		return reducedTestSequences;
+	}
+
+	/**
+	 * @param sequence event indices
+	 * @return the targets covered by the sequence (in-consecutive)
+	 */
+	public TargetBitSet getCoveredTargets(int[] sequence) {
+		TargetBitSet coveredTargets = universe.newTargetSet();
+		CoverageState coverageState = new CoverageState(universe);
+		for (int event : sequence) {
+			coverageState.collectNewlyCovered(event, targets, coveredTargets);
+			coverageState.append(event);
+		}
+		return coveredTargets;
+	}
+
+	/**
+	 * @return the number of sequences removed by the last reduction
+	 */
+	public int getNumberOfRemovedSequences() {
+		return numberOfRemovedSequences;
+	}
+
+	/**
+	 * @return the number of events in the sequences removed by the last reduction
+	 */
+	public int getNumberOfRemovedEvents() {
+		return numberOfRemovedEvents;
+	}
+
+	@Override
+	public String toString() {
+		return numberOfRemovedSequences + " sequences and " + numberOfRemovedEvents + " events are removed";
+	}
+}
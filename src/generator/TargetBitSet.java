@@ -0,0 +1,142 @@
+package generator;
+
+import java.util.Arrays;
+
+/**
+ * a set of t-way target sequences, stored as a bitset over their ranks in TargetUniverse,
+ * so that copy, removeAll and size are word-parallel operations on long[].
+ * Ranks are long, since n^t may exceed Integer.MAX_VALUE, while the words are indexed by int up to 2^37 ranks.
+ *
+ * @author Feng Duan
+ *
+ */
+public class TargetBitSet {
+	private static final int ADDRESS_BITS_PER_WORD = 6;
+
+	// the max number of ranks, whose words are indexed by int
+	public static final long MAX_CAPACITY = (long) (Integer.MAX_VALUE - 8) << ADDRESS_BITS_PER_WORD;
+
+	private final long capacity; // number of ranks in the universe
+	private final long[] words;
+
+	public TargetBitSet(long capacity) {
+		if (capacity > MAX_CAPACITY)
+			throw new IllegalArgumentException(capacity + " targets are too many to be stored!");
+		this.capacity = capacity;
+		words = new long[wordIndex(capacity - 1) + 1];
+	}
+
+	// copy constructor
+	public TargetBitSet(TargetBitSet original) {
+		capacity = original.capacity;
+		words = original.words.clone();
+	}
+
+	private static int wordIndex(long rank) {
+		return (int) (rank >> ADDRESS_BITS_PER_WORD);
+	}
+
+	public boolean contains(long rank) {
+		return (words[wordIndex(rank)] & (1L << rank)) != 0;
+	}
+
+	public void add(long rank) {
+		words[wordIndex(rank)] |= (1L << rank);
+	}
+
+	public void remove(long rank) {
+		words[wordIndex(rank)] &= ~(1L << rank);
+	}
+
+	// this = this \ other
+	public void removeAll(TargetBitSet other) {
+		for (int i = 0; i < words.length; i++)
+			words[i] &= ~other.words[i];
+	}
+
+	// this = this U other
+	public void addAll(TargetBitSet other) {
+		for (int i = 0; i < words.length; i++)
+			words[i] |= other.words[i];
+	}
+
+	// this = this & other
+	public void retainAll(TargetBitSet other) {
+		for (int i = 0; i < words.length; i++)
+			words[i] &= other.words[i];
+	}
+
+	// this and other have at least one common rank
+	public boolean intersects(TargetBitSet other) {
+		for (int i = 0; i < words.length; i++) {
+			if ((words[i] & other.words[i]) != 0)
+				return true;
+		}
+		return false;
+	}
+
+	// other is a subset of this
+	public boolean containsAll(TargetBitSet other) {
+		for (int i = 0; i < words.length; i++) {
+			if ((other.words[i] & ~words[i]) != 0)
+				return false;
+		}
+		return true;
+	}
+
+	public void clear() {
+		Arrays.fill(words, 0L);
+	}
+
+	public long size() {
+		long size = 0;
+		for (long word : words)
+			size += Long.bitCount(word);
+		return size;
+	}
+
+	public boolean isEmpty() {
+		for (long word : words) {
+			if (word != 0)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @param fromRank
+	 * @return the first rank >= fromRank in this set, or -1 if there is none
+	 */
+	public long nextRank(long fromRank) {
+		if (fromRank >= capacity)
+			return -1;
+
+		int u = wordIndex(fromRank);
+		long word = words[u] & (-1L << fromRank);
+		while (true) {
+			if (word != 0)
+				return ((long) u << ADDRESS_BITS_PER_WORD) + Long.numberOfTrailingZeros(word);
+			if (++u == words.length)
+				return -1;
+			word = words[u];
+		}
+	}
+
+	public long getCapacity() {
+		return capacity;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof TargetBitSet))
+			return false;
+
+		TargetBitSet other = (TargetBitSet) obj;
+		return capacity == other.capacity && Arrays.equals(words, other.words);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(words);
+	}
+}
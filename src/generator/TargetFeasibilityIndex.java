@@ -0,0 +1,103 @@
+package generator;
+
+import sequencingConstraints.SequenceCursor;
+import sequencingConstraints.SolverByAutomaton;
+
+/**
+ * classification of t-way target sequences as starting sequences, built once through the compiled automaton:
+ * a target is valid, extendable (but not valid), or dead (neither valid nor extendable).
+ *
+ * A dead target can not be a starting sequence, but it may still be covered in-consecutively
+ * by other test sequences, thus it is not uncoverable by itself.
+ *
+ * @author Feng Duan
+ *
+ */
+public class TargetFeasibilityIndex {
+	private TargetBitSet validTargets;
+	private TargetBitSet extendableTargets;
+	private TargetBitSet deadTargets;
+	private TargetBitSet feasibleTargets; // valid or extendable
+
+	private long nextFeasibleTarget = 0; // no uncovered feasible target is before it
+
+	/**
+	 * @param universe
+	 * @param solver
+	 * @param targets the targets to be classified
+	 */
+	public TargetFeasibilityIndex(TargetUniverse universe, SolverByAutomaton solver, TargetBitSet targets) {
+		validTargets = universe.newTargetSet();
+		extendableTargets = universe.newTargetSet();
+		deadTargets = universe.newTargetSet();
+
+		int[] targetSeq = new int[universe.getStrength()];
+		SequenceCursor emptyCursor = solver.newCursor();
+		for (long rank = targets.nextRank(0); rank >= 0; rank = targets.nextRank(rank + 1)) {
+			universe.unrank(rank, targetSeq);
+			SequenceCursor cursor = emptyCursor.append(targetSeq, targetSeq.length);
+			if (cursor.isValid())
+				validTargets.add(rank);
+			else if (cursor.isExtendable())
+				extendableTargets.add(rank);
+			else
+				deadTargets.add(rank);
+		}
+
+		feasibleTargets = new TargetBitSet(validTargets);
+		feasibleTargets.addAll(extendableTargets);
+	}
+
+	/**
+	 * Pop the first feasible target in the order of ranks which is still uncovered.
+	 * Since covered targets never become uncovered again (unless they are restored by rewind()), 
+	 * the search continues from the last popped target, so that each target is skipped at most once in a whole generation.
+	 *
+	 * @param uncoveredTargets
+	 * @return the rank of target, or -1 if there is no uncovered feasible target
+	 */
+	public long nextFeasibleTarget(TargetBitSet uncoveredTargets) {
+		long rank = feasibleTargets.nextRank(nextFeasibleTarget);
+		while (rank >= 0 && !uncoveredTargets.contains(rank))
+			rank = feasibleTargets.nextRank(rank + 1);
+
+		nextFeasibleTarget = rank < 0 ? feasibleTargets.getCapacity() : rank;
+		return rank;
+	}
+
+	/**
+	 * restart the search of feasible targets from the first rank, 
+	 * after popped or covered targets are restored as uncovered, e.g., when a generation is rolled back by budget
+	 */
+	public void rewind() {
+		nextFeasibleTarget = 0;
+	}
+
+	public boolean isValid(long rank) {
+		return validTargets.contains(rank);
+	}
+
+	public boolean isExtendable(long rank) {
+		return extendableTargets.contains(rank);
+	}
+
+	public boolean isFeasible(long rank) {
+		return feasibleTargets.contains(rank);
+	}
+
+	public TargetBitSet getValidTargets() {
+		return validTargets;
+	}
+
+	public TargetBitSet getExtendableTargets() {
+		return extendableTargets;
+	}
+
+	public TargetBitSet getDeadTargets() {
+		return deadTargets;
+	}
+
+	public TargetBitSet getFeasibleTargets() {
+		return feasibleTargets;
+	}
+}
@@ -0,0 +1,133 @@
+package generator;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import util.EventAlphabet;
+
+/**
+ * the universe of t-way target sequences over n events, where each target is mapped to
+ * a dense long rank, i.e., the base-n encoding of its event indices (see Subsequences.rank).
+ * Sets of targets are then stored as TargetBitSet, one bit per target.
+ *
+ * @author Feng Duan
+ *
+ */
+public class TargetUniverse {
+
+	private EventAlphabet alphabet;
+	private List<String> listOfEvents;
+
+	private int strength; // t
+	private long size; // n^t
+
+	public TargetUniverse(List<String> eventsList, int t) {
+		this(new EventAlphabet(eventsList), t);
+	}
+
+	public TargetUniverse(EventAlphabet eventAlphabet, int t) {
+		alphabet = eventAlphabet;
+		listOfEvents = alphabet.getEvents();
+
+		strength = t;
+
+		size = Subsequences.getSizeOfEventPowers(listOfEvents.size(), t);
+		if (size > TargetBitSet.MAX_CAPACITY)
+			throw new IllegalArgumentException(listOfEvents.size() + "^" + t + " targets are too many to be indexed!");
+	}
+
+	/**
+	 * @return an empty set of targets
+	 */
+	public TargetBitSet newTargetSet() {
+		return new TargetBitSet(size);
+	}
+
+	/**
+	 * @param targets t-way target sequences
+	 * @return the set of their ranks
+	 */
+	public TargetBitSet toTargetSet(Set<List<String>> targets) {
+		TargetBitSet targetSet = newTargetSet();
+		for (List<String> target : targets)
+			targetSet.add(rank(target));
+		return targetSet;
+	}
+
+	/**
+	 * @param subseqs valid t-way subsequences enumerated lazily
+	 * @return the set of their ranks
+	 */
+	public TargetBitSet toTargetSet(Subsequences subseqs) {
+		TargetBitSet targetSet = newTargetSet();
+		TwayTargetIterator iterator = subseqs.indexIterator();
+		while (iterator.hasNext()) {
+			iterator.next();
+			targetSet.add(iterator.getCurrentRank());
+		}
+		return targetSet;
+	}
+
+	/**
+	 * @param targetSet set of ranks
+	 * @return the targets in the order of ranks, i.e., the order of Subsequences enumeration
+	 */
+	public Set<List<String>> toTargetSeqs(TargetBitSet targetSet) {
+		Set<List<String>> targets = new LinkedHashSet<List<String>>();
+		for (long rank = targetSet.nextRank(0); rank >= 0; rank = targetSet.nextRank(rank + 1))
+			targets.add(getTargetSeq(rank));
+		return targets;
+	}
+
+	public long rank(List<String> target) {
+		long rank = 0;
+		for (String event : target)
+			rank = rank * listOfEvents.size() + getEventIndex(event);
+		return rank;
+	}
+
+	// decode the rank into the given tuple of event indices
+	public void unrank(long rank, int[] index) {
+		Subsequences.unrank(rank, listOfEvents.size(), index);
+	}
+
+	public List<String> getTargetSeq(long rank) {
+		int[] index = new int[strength];
+		unrank(rank, index);
+
+		return alphabet.decode(index);
+	}
+
+	public int getEventIndex(String event) {
+		int index = alphabet.getIndex(event);
+		if (index < 0)
+			throw new IllegalArgumentException("Doesn't support event " + event + "!");
+		return index;
+	}
+
+	// encode a sequence of events into their indices
+	public int[] encode(List<String> sequence) {
+		return alphabet.encode(sequence);
+	}
+
+	public EventAlphabet getAlphabet() {
+		return alphabet;
+	}
+
+	public List<String> getListOfEvents() {
+		return listOfEvents;
+	}
+
+	public int getNumberOfEvents() {
+		return listOfEvents.size();
+	}
+
+	public int getStrength() {
+		return strength;
+	}
+
+	public long getSize() {
+		return size;
+	}
+}
@@ -0,0 +1,118 @@
+package generator;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * lazily enumerate t-way target sequences as event index tuples,
+ * in the same order as Subsequences.getEventPowers(n, t),
+ * but only yield the tuples which are valid on repetition constraint.
+ *
+ * Each tuple is identified by its rank in the n^t space (base-n encoding of event indices),
+ * so that a range of ranks [fromRank, toRank) can be enumerated independently in O(t) memory.
+ *
+ * @author Feng Duan
+ *
+ */
+public class TwayTargetIterator implements Iterator<int[]> {
+
+	private int n; // number of events
+	private int t; // strength of target sequences
+	private int maxRepetition;
+
+	private long nextRank; // rank of the tuple held in index[], if hasNext
+	private long toRank; // exclusive upper bound of ranks
+
+	private int[] index; // event indices of the next valid tuple
+	private long currentRank = -1; // rank of the tuple returned by the last next()
+
+	public TwayTargetIterator(int n, int t, int maxRepetition) {
+		this(n, t, maxRepetition, 0, Subsequences.getSizeOfEventPowers(n, t));
+	}
+
+	public TwayTargetIterator(int n, int t, int maxRepetition, long fromRank, long toRank) {
+		this.n = n;
+		this.t = t;
+		this.maxRepetition = maxRepetition;
+		this.toRank = toRank;
+
+		index = new int[t];
+		nextRank = fromRank;
+		if (nextRank < toRank) {
+			Subsequences.unrank(nextRank, n, index);
+			seekValid();
+		}
+	}
+
+	// move forward from nextRank to the first tuple that is valid on repetition constraint
+	private void seekValid() {
+		while (nextRank < toRank && !isValidOnRepetition(index)) {
+			increase();
+		}
+	}
+
+	// odometer increment of index, i.e., nextRank + 1
+	private void increase() {
+		nextRank++;
+
+		int pos = t-1; // last event slot
+		while (pos >= 0) {
+			index[pos]++;
+			if (index[pos] > n-1) { // carry
+				index[pos] = 0;
+				pos--;
+			}
+			else
+				break;
+		}
+	}
+
+	private boolean isValidOnRepetition(int[] tuple) {
+		// O(t^2) time but no counter of n events, so that memory stays O(t)
+		for (int i = 0; i < tuple.length; i++) {
+			int count = 1;
+			for (int j = i+1; j < tuple.length; j++) {
+				if (tuple[j] == tuple[i])
+					count++;
+			}
+			if (count > maxRepetition)
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public boolean hasNext() {
+		return nextRank < toRank;
+	}
+
+	/**
+	 * @return a new copy of the next valid tuple of event indices
+	 */
+	@Override
+	public int[] next() {
+		if (!hasNext())
+			throw new NoSuchElementException();
+
+		int[] tuple = new int[t];
+		System.arraycopy(index, 0, tuple, 0, t);
+		currentRank = nextRank;
+
+		increase();
+		seekValid();
+
+		return tuple;
+	}
+
+	/**
+	 * @return the rank of the tuple returned by the last next(), or -1 before the first next()
+	 */
+	public long getCurrentRank() {
+		return currentRank;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+}
@@ -1,13 +1,19 @@
 package main;
 
+import java.io.File;
 import java.util.List;
 
+import generator.GenerationBudget;
 import generator.SequenceGeneratorByAutomaton;
 import generator.Subsequences;
+import generator.TargetBitSet;
+import generator.TargetUniverse;
+import sequencingConstraints.CompiledAutomatonStore;
 import sequencingConstraints.Constraint;
 import sequencingConstraints.SolverByAutomaton;
 import sequencingConstraints.TypeInfo;
 import sequencingConstraints.constraintParser.ConstraintParser;
+import util.EventAlphabet;
 
 /**
  * Here is an example to show how to generate t-way test sequences for SUT 
@@ -23,6 +29,13 @@ public class TestSeqGen {
 //		boolean isGeneratorDebugModeFlag = true;
 		boolean isGeneratorDebugModeFlag = false;
 		
+		// deadline of each generation in milliseconds, after which the test sequences generated so far are kept
+		long timeBudgetOfGeneration = GenerationBudget.UNLIMITED;
+		
+		// directory owned by the user where compiled automata are saved and reused by later runs, 
+		// null to keep them in memory only
+		String directoryOfCompiledAutomata = null;
+		
 //		// SUT 1. Motivating example {Open, Read, Write, Close}
 //		String[] events = {"Open", "Read", "Write", "Close"};
 //		
@@ -96,6 +109,14 @@ public class TestSeqGen {
 			}
 		}
 		
+		// intern events as indices once, and share them by parser, solver and generator
+		EventAlphabet alphabet = new EventAlphabet(events);
+		
+		// the automaton only depends on the constraint and events, 
+		// thus it is compiled once and reused by all generations, and also by later runs if the directory is given
+		CompiledAutomatonStore automatonStore = directoryOfCompiledAutomata == null ? new CompiledAutomatonStore()
+				: new CompiledAutomatonStore(new File(directoryOfCompiledAutomata));
+		
 		int[][][] numberOfTwaySeqs = new int[largestT+1][largestMaxRepetition+1][largestMaxLength+1];
 		int[][][] numberOfCoveredSeqs = new int[largestT+1][largestMaxRepetition+1][largestMaxLength+1];
 		
@@ -124,12 +145,16 @@ public class TestSeqGen {
 					System.out.println(counter + "th Generation Begin! " + " Strength = " + t + 
 							" , maxRepetition = " + maxRepetition + " , maxLength = " + maxLength);
 					
-					Subsequences subseqs = new Subsequences(events, t, maxRepetition);
+					// t-way subsequences are enumerated lazily and ranked in the universe, without building them as lists
+					Subsequences subseqs = new Subsequences(alphabet, t, maxRepetition, true);
 					System.out.println(subseqs.getListOfEvents().size() + " Events: ");
 					System.out.println("  " + subseqs.getListOfEvents());
 					
-					System.out.println("# of " + t + "-way permutations (with repetition <=" + maxRepetition + ") =  " + subseqs.getSetOfTwaySubseqs().size());
-					System.out.println("  " + subseqs.getSetOfTwaySubseqs());
+					TargetUniverse universe = new TargetUniverse(alphabet, t);
+					TargetBitSet twaySeqs = universe.toTargetSet(subseqs);
+					System.out.println("# of " + t + "-way permutations (with repetition <=" + maxRepetition + ") =  " + twaySeqs.size());
+					if (isGeneratorDebugModeFlag)
+						System.out.println("  " + universe.toTargetSeqs(twaySeqs));
 					
 					System.out.println("Repetition Constraints: ");
 					System.out.println("  " + "0 <= Event.# <= " + maxRepetition);
@@ -142,12 +167,10 @@ public class TestSeqGen {
 					
 					System.out.println("");
 					
-					numberOfTwaySeqs[t][maxRepetition][maxLength] = subseqs.getSetOfTwaySubseqs().size();
-										
-					List<String> eventsList = subseqs.getListOfEvents();
+					numberOfTwaySeqs[t][maxRepetition][maxLength] = (int) twaySeqs.size();
 					
 					ConstraintParser parser = new ConstraintParser(
-							constraint, eventsList);
+							constraint, alphabet);
 					try {
 						TypeInfo ti = parser.parse();
 			
@@ -155,11 +178,12 @@ public class TestSeqGen {
 						
 						/* ConstraintSolver */
 						SolverByAutomaton solver = new SolverByAutomaton(isSolverDebugModeFlag, 
-								eventsList, sequencingCons, maxRepetition, maxLength);
+								alphabet, sequencingCons, maxRepetition, maxLength, automatonStore);
 						
 						/* SequenceGenerator */
-						SequenceGeneratorByAutomaton generator = new SequenceGeneratorByAutomaton(eventsList, solver, subseqs.getSetOfTwaySubseqs());
+						SequenceGeneratorByAutomaton generator = new SequenceGeneratorByAutomaton(solver, subseqs);
 						generator.setDebugMode(isGeneratorDebugModeFlag);
+						generator.setTimeBudget(timeBudgetOfGeneration);
 						// based on above informations, generate valid consecutive complete sequences to cover all target sequences 
 						long genStartTime = System.currentTimeMillis();
 						generator.generate();
@@ -192,7 +216,7 @@ public class TestSeqGen {
 						System.out.println("===========================");
 						System.out.println("");
 						
-						numberOfCoveredSeqs[t][maxRepetition][maxLength] = numberOfTwaySeqs[t][maxRepetition][maxLength] - generator.getSetOfUncoveredTargetSeqs().size();
+						numberOfCoveredSeqs[t][maxRepetition][maxLength] = numberOfTwaySeqs[t][maxRepetition][maxLength] - (int) generator.getUncoveredTargets().size();
 						genTimeOfTestSeqs[t][maxRepetition][maxLength] = (float) (genTime)/1000;
 						numberOfTestSeqs[t][maxRepetition][maxLength] = numOfTestSeqs;
 						minLenOfTestSeqs[t][maxRepetition][maxLength] = minLen;
@@ -2,8 +2,17 @@ package main;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -11,11 +20,27 @@ import org.junit.Test;
 import dk.brics.automaton.Automaton;
 import dk.brics.automaton.State;
 import dk.brics.automaton.Transition;
+import generator.BeamSequenceGenerator;
+import generator.CoverabilityAnalysis;
+import generator.CoverageState;
+import generator.EncodedSequence;
+import generator.ExtendabilityCache;
+import generator.SequenceGeneratorByAutomaton;
 import generator.Subsequences;
+import generator.SuiteReducer;
+import generator.TargetBitSet;
+import generator.TargetFeasibilityIndex;
+import generator.TargetUniverse;
+import sequencingConstraints.CompiledAutomaton;
+import sequencingConstraints.CompiledAutomatonStore;
 import sequencingConstraints.Constraint;
 import sequencingConstraints.ConstraintToAutomaton;
+import sequencingConstraints.LazyProductAutomaton;
+import sequencingConstraints.SequenceCursor;
+import sequencingConstraints.SolverByAutomaton;
 import sequencingConstraints.TypeInfo;
 import sequencingConstraints.constraintParser.ConstraintParser;
+import util.EventAlphabet;
 
 /**
  * test sequencing constraints and generator
@@ -29,6 +54,30 @@ public class UnitTesting {
 	public void setUp() throws Exception {
 	}
 	
+	//motivating example {Open, Read, Write, Close}, shared by the tests of solver and generator
+	private static final String[] MOTIVATING_EVENTS = {"O", "R", "W", "C"};
+	private static final String MOTIVATING_CONSTRAINT = "O +... C && (_ O && O .~. C) -+ {R, W, C}";
+	
+	private static List<String> getMotivatingEventsList() {
+		return new ArrayList<String>(Arrays.asList(MOTIVATING_EVENTS));
+	}
+	
+	private static TypeInfo parseMotivatingConstraint(List<String> eventsList) throws Exception {
+		return new ConstraintParser(MOTIVATING_CONSTRAINT, eventsList).parse();
+	}
+	
+	// each test sequence joined into a string, e.g., "ORWC"
+	private static List<String> joinSequences(Set<List<String>> testSequences) {
+		List<String> joinedSequences = new ArrayList<String>();
+		for (List<String> testSequence : testSequences) {
+			StringBuilder sequence = new StringBuilder();
+			for (String event : testSequence)
+				sequence.append(event);
+			joinedSequences.add(sequence.toString());
+		}
+		return joinedSequences;
+	}
+	
 	@Test
 	public void testGR1() {
 		//motivating example
@@ -2037,5 +2086,1222 @@ public class UnitTesting {
 		
 		assertTrue(automaton1.equals(automaton2));
 	}
+	
+	@Test
+	public void testLazySubsequences() {
+		String[] events = {"A", "B", "C", "D", "E"};
+		int t = 3; // strength of subsequences
+		int maxRepetition = 2; // repetition constraint
+		
+		// Expected: lazy enumeration yields the same 5^3-5 = 120 subsequences in the same order as the stored set
+		Subsequences eagerSubseqs = new Subsequences(events, t, maxRepetition);
+		Subsequences lazySubseqs = new Subsequences(events, t, maxRepetition, true);
+		
+		List<List<String>> lazyList = new ArrayList<List<String>>();
+		for (List<String> subseq : lazySubseqs)
+			lazyList.add(subseq);
+		
+		assertEquals(120, lazyList.size());
+		assertEquals(new ArrayList<List<String>>(eagerSubseqs.getSetOfTwaySubseqs()), lazyList);
+		
+		// Expected: rank is the position in n^t permutations, and unrank is its inverse
+		int[] index = {2, 0, 4};
+		long rank = Subsequences.rank(index, events.length);
+		assertEquals(2*25 + 0*5 + 4, rank);
+		
+		int[] unranked = new int[t];
+		Subsequences.unrank(rank, events.length, unranked);
+		assertArrayEquals(index, unranked);
+		
+		// Expected: enumerating by split ranges yields the same subsequences as a whole
+		int count = 0;
+		long size = Subsequences.getSizeOfEventPowers(events.length, t);
+		for (long from = 0; from < size; from += 7) {
+			Iterator<int[]> iterator = lazySubseqs.indexIterator(from, Math.min(from + 7, size));
+			while (iterator.hasNext()) {
+				int[] tuple = iterator.next();
+				List<String> subseq = new ArrayList<String>();
+				for (int eventIndex : tuple)
+					subseq.add(events[eventIndex]);
+				assertEquals(lazyList.get(count), subseq);
+				count++;
+			}
+		}
+		assertEquals(120, count);
+	}
+	
+	@Test
+	public void testEncodedSequenceCovers() {
+		String[] events = {"A", "B", "C", "D"};
+		int n = events.length;
+		
+		// sequence = [A, C, B, A, D, C]
+		int[] sequence = {0, 2, 1, 0, 3, 2};
+		EncodedSequence encodedSequence = new EncodedSequence(sequence, n);
+		
+		List<String> listSequence = encodedSequence.decode(Arrays.asList(events));
+		SequenceGeneratorByAutomaton generator = new SequenceGeneratorByAutomaton(Arrays.asList(events), null, 
+				new LinkedHashSet<List<String>>());
+		
+		// Expected: two-pointer matching and String matching agree on all 3-way subsequences
+		int[] subseq = new int[3];
+		for (int rank = 0; rank < n*n*n; rank++) {
+			Subsequences.unrank(rank, n, subseq);
+			
+			boolean expected = generator.isCovered(listSequence, new EncodedSequence(subseq.clone(), n).decode(Arrays.asList(events)));
+			assertEquals(expected, encodedSequence.covers(subseq));
+		}
+		
+		assertTrue(encodedSequence.covers(new int[] {0, 1, 3})); // [A, B, D]
+		assertFalse(encodedSequence.covers(new int[] {3, 1})); // [D, B]
+		
+		// Expected: the sequence is not changed by modifying the given array
+		sequence[0] = 3;
+		assertEquals(0, encodedSequence.get(0));
+	}
+	
+	@Test
+	public void testCompiledAutomaton() {
+		List<String> eventsList = getMotivatingEventsList();
+		
+		try {
+			TypeInfo ti = parseMotivatingConstraint(eventsList);
+			
+			ConstraintToAutomaton convertor = new ConstraintToAutomaton(eventsList);
+			Automaton automaton = convertor.convertSequencingExprToAutomaton(ti.getConstraint());
+			CompiledAutomaton compiledAutomaton = new CompiledAutomaton(automaton, convertor);
+			
+			// Expected: the compiled table accepts the same sequences as the automaton, for all sequences of length <= 6
+			int n = MOTIVATING_EVENTS.length;
+			for (int length = 0; length <= 6; length++) {
+				int[] sequence = new int[length];
+				for (int rank = 0; rank < Subsequences.getSizeOfEventPowers(n, length); rank++) {
+					Subsequences.unrank(rank, n, sequence);
+					
+					List<String> seq = new ArrayList<String>();
+					for (int event : sequence)
+						seq.add(MOTIVATING_EVENTS[event]);
+					
+					boolean expected = automaton.run(convertor.mappingSequenceToCharArray(seq));
+					assertEquals(seq.toString(), expected, compiledAutomaton.accepts(sequence, length));
+				}
+			}
+		} catch (Exception ex) {
+			System.out.print(ex);
+			fail();
+		}
+	}
+	
+	@Test
+	public void testRepetitionProductAutomaton() {
+		//motivating example {Open, Read, Write, Close} with events X, Y not mentioned in constraints
+		String[] events = {"O", "R", "W", "C", "X", "Y"};
+		String constraint = "O +... C && (_ O && O .~. C) -+ {R, W, C}";
+		int maxRepetition = 2;
+		int maxLength = 5;
+		
+		List<String> eventsList = new ArrayList<String>();
+		for (String event : events)
+			eventsList.add(event);
+		
+		try {
+			TypeInfo ti = new ConstraintParser(constraint, eventsList).parse();
+			
+			SolverByAutomaton solver = new SolverByAutomaton(false, eventsList, ti.getConstraint(), maxRepetition, maxLength);
+			SolverByAutomaton productSolver = new SolverByAutomaton(false, eventsList, ti.getConstraint(), maxRepetition, maxLength);
+			productSolver.setRepetitionProductMode(true);
+			
+			// Expected: 4 classes of events, i.e., O, C, {R, W} and {X, Y}
+			assertEquals(4, productSolver.getProductAutomaton().getNumberOfClasses());
+			
+			// Expected: the same validity and extensibility in both modes, for all sequences of length <= maxLength
+			int n = events.length;
+			for (int length = 0; length <= maxLength; length++) {
+				int[] sequence = new int[length];
+				for (int rank = 0; rank < Subsequences.getSizeOfEventPowers(n, length); rank++) {
+					Subsequences.unrank(rank, n, sequence);
+					
+					String seq = Arrays.toString(sequence);
+					assertEquals(seq, solver.solve(sequence, length), productSolver.solve(sequence, length));
+					assertEquals(seq, solver.isExtendable(sequence, length), productSolver.isExtendable(sequence, length));
+				}
+			}
+		} catch (Exception ex) {
+			System.out.print(ex);
+			fail();
+		}
+	}
+	
+	@Test
+	public void testExtendabilityCache() {
+		List<String> eventsList = getMotivatingEventsList();
+		
+		try {
+			TypeInfo ti = parseMotivatingConstraint(eventsList);
+			SolverByAutomaton solver = new SolverByAutomaton(false, eventsList, ti.getConstraint(), 2, 8);
+			
+			// one stripe for exact LRU eviction
+			ExtendabilityCache cache = new ExtendabilityCache(2, 1);
+			SequenceCursor o = solver.newCursor().append(0); // O
+			SequenceCursor or = o.append(1); // O R
+			SequenceCursor ow = o.append(2); // O W
+			SequenceCursor oo = o.append(0); // O O
+			
+			cache.put(o, 8, true);
+			cache.put(or, 8, true);
+			// Expected: O R and O W arrive the same state with different repetitions
+			assertNull(cache.get(ow, 8));
+			cache.put(ow, 8, true);
+			
+			// Expected: the least recently used O is evicted
+			assertEquals(2, cache.size());
+			assertEquals(1, cache.getEvictions());
+			assertNull(cache.get(o, 8));
+			assertEquals(Boolean.TRUE, cache.get(or, 8));
+			assertEquals(1, cache.getHits());
+			assertEquals(2, cache.getMisses());
+			
+			// Expected: the same sequence with different remaining length is another entry
+			cache.put(oo, 8, false);
+			assertNull(cache.get(oo, 9));
+			assertEquals(Boolean.FALSE, cache.get(oo, 8));
+			
+			// Expected: stripes shared by threads never exceed the capacity, and never give a wrong result
+			final ExtendabilityCache stripedCache = new ExtendabilityCache(40);
+			final List<SequenceCursor> cursors = new ArrayList<SequenceCursor>();
+			int[] sequence = new int[4];
+			for (int rank = 0; rank < Subsequences.getSizeOfEventPowers(MOTIVATING_EVENTS.length, 4); rank++) {
+				Subsequences.unrank(rank, MOTIVATING_EVENTS.length, sequence);
+				SequenceCursor cursor = solver.newCursor().append(sequence, 4);
+				if (!cursor.isDead())
+					cursors.add(cursor);
+			}
+			Thread[] threads = new Thread[4];
+			for (int k = 0; k < threads.length; k++) {
+				threads[k] = new Thread() {
+					@Override
+					public void run() {
+						for (SequenceCursor cursor : cursors)
+							stripedCache.put(cursor, 8, cursor.isExtendable());
+					}
+				};
+				threads[k].start();
+			}
+			for (Thread thread : threads)
+				thread.join();
+			assertTrue(stripedCache.size() <= 40);
+			for (SequenceCursor cursor : cursors) {
+				Boolean result = stripedCache.get(cursor, 8);
+				assertTrue(result == null || result == cursor.isExtendable());
+			}
+		} catch (Exception ex) {
+			System.out.print(ex);
+			fail();
+		}
+	}
+	
+	@Test
+	public void testCoverabilityAnalysis() {
+		String constraint = "O +... C && (_ O && O .~. C) -+ {R, W, C} && (_ O && O .~. C) ~ O";
+		// {strength, maxRepetition, maxLength}
+		int[][] configurations = {{2, 1, 4}, {3, 1, 4}, {2, 2, 5}, {3, 2, 6}, {3, 3, 5}};
+		
+		List<String> eventsList = getMotivatingEventsList();
+		
+		try {
+			TypeInfo ti = new ConstraintParser(constraint, eventsList).parse();
+			
+			for (int[] configuration : configurations) {
+				int t = configuration[0];
+				int maxRepetition = configuration[1];
+				int maxLength = configuration[2];
+				SolverByAutomaton solver = new SolverByAutomaton(false, eventsList, ti.getConstraint(), maxRepetition, maxLength);
+				
+				Subsequences subseqs = new Subsequences(MOTIVATING_EVENTS, t, maxRepetition, true);
+				SequenceGeneratorByAutomaton generator = new SequenceGeneratorByAutomaton(solver, subseqs);
+				TargetUniverse universe = generator.getUniverse();
+				CoverabilityAnalysis analysis = generator.getCoverabilityAnalysis();
+				
+				// Expected: the coverable targets are exactly the targets covered by all valid sequences
+				TargetBitSet coveredTargets = universe.newTargetSet();
+				int n = MOTIVATING_EVENTS.length;
+				for (int length = t; length <= maxLength; length++) {
+					int[] sequence = new int[length];
+					for (int rank = 0; rank < Subsequences.getSizeOfEventPowers(n, length); rank++) {
+						Subsequences.unrank(rank, n, sequence);
+						if (!solver.solve(sequence, length))
+							continue;
+						
+						EncodedSequence encodedSequence = new EncodedSequence(sequence, n);
+						int[] targetSeq = new int[t];
+						for (int target = 0; target < universe.getSize(); target++) {
+							universe.unrank(target, targetSeq);
+							if (encodedSequence.covers(targetSeq))
+								coveredTargets.add(target);
+						}
+					}
+				}
+				coveredTargets.retainAll(generator.getUncoveredTargets());
+				
+				String message = Arrays.toString(configuration);
+				assertEquals(message, coveredTargets, analysis.getCoverableTargets());
+				
+				TargetBitSet allTargets = new TargetBitSet(analysis.getCoverableTargets());
+				allTargets.addAll(analysis.getUncoverableTargets());
+				assertEquals(message, generator.getUncoveredTargets(), allTargets);
+			}
+		} catch (Exception ex) {
+			System.out.print(ex);
+			fail();
+		}
+	}
+	
+	@Test
+	public void testSuiteReducer() {
+		String[] events = {"a", "b", "c"};
+		List<String> eventsList = new ArrayList<String>();
+		for (String event : events)
+			eventsList.add(event);
+		
+		Subsequences subseqs = new Subsequences(events, 2, 2, true);
+		TargetUniverse universe = new TargetUniverse(eventsList, 2);
+		TargetBitSet targets = universe.toTargetSet(subseqs);
+		
+		// [a, b] and [b, c] are covered by [a, b, c], and [c, a] by [c, a, a]
+		Set<List<String>> testSequences = new LinkedHashSet<List<String>>();
+		testSequences.add(Arrays.asList("a", "b"));
+		testSequences.add(Arrays.asList("b", "c"));
+		testSequences.add(Arrays.asList("a", "b", "c"));
+		testSequences.add(Arrays.asList("c", "a"));
+		testSequences.add(Arrays.asList("c", "a", "a"));
+		
+		SuiteReducer reducer = new SuiteReducer(universe, targets);
+		Set<List<String>> reducedTestSequences = reducer.reduce(testSequences);
+		
+		// Expected: the kept sequences are in their original order, and cover the same targets
+		Set<List<String>> expecteds = new LinkedHashSet<List<String>>();
+		expecteds.add(Arrays.asList("a", "b", "c"));
+		expecteds.add(Arrays.asList("c", "a", "a"));
+		assertEquals(new ArrayList<List<String>>(expecteds), new ArrayList<List<String>>(reducedTestSequences));
+		assertEquals(3, reducer.getNumberOfRemovedSequences());
+		assertEquals(6, reducer.getNumberOfRemovedEvents());
+		
+		TargetBitSet coveredTargets = universe.newTargetSet();
+		for (List<String> testSequence : testSequences)
+			coveredTargets.addAll(reducer.getCoveredTargets(universe.encode(testSequence)));
+		TargetBitSet reducedCoveredTargets = universe.newTargetSet();
+		for (List<String> testSequence : reducedTestSequences)
+			reducedCoveredTargets.addAll(reducer.getCoveredTargets(universe.encode(testSequence)));
+		assertEquals(coveredTargets, reducedCoveredTargets);
+	}
+	
+	@Test
+	public void testGenerationBudget() {
+		String constraint = "O +... C && (_ O && O .~. C) -+ {R, W, C} && (_ O && O .~. C) ~ O";
+		// {budget of search nodes, budget of extensibility searches}
+		long[][] budgets = {{0, 1000}, {1000, 0}, {1000, 3}, {70, 1000}};
+		// sequences are generated one at a time, or in batches
+		int[] batchSizes = {1, 4};
+		
+		List<String> eventsList = getMotivatingEventsList();
+		
+		try {
+			TypeInfo ti = new ConstraintParser(constraint, eventsList).parse();
+			
+			for (int batchSize : batchSizes)
+			for (long[] budget : budgets) {
+				SolverByAutomaton solver = new SolverByAutomaton(false, eventsList, ti.getConstraint(), 2, 8);
+				Subsequences subseqs = new Subsequences(MOTIVATING_EVENTS, 3, 2, true);
+				SequenceGeneratorByAutomaton generator = new SequenceGeneratorByAutomaton(solver, subseqs);
+				generator.setBatchSize(batchSize);
+				generator.setStartingPhaseBudget(budget[0]);
+				generator.setExtendabilitySearchBudget(budget[1]);
+				TargetUniverse universe = generator.getUniverse();
+				TargetBitSet targets = new TargetBitSet(generator.getUncoveredTargets());
+				
+				generator.generate();
+				
+				// Expected: generation is stopped, all generated sequences are valid, 
+				// and the uncovered targets are exactly the ones not covered by them
+				String message = batchSize + " " + Arrays.toString(budget);
+				assertTrue(message, generator.isStoppedByBudget());
+				
+				SuiteReducer reducer = new SuiteReducer(universe, targets);
+				for (List<String> testSequence : generator.getSetOfTestSequences()) {
+					int[] sequence = universe.encode(testSequence);
+					assertTrue(message, solver.solve(sequence, sequence.length));
+					targets.removeAll(reducer.getCoveredTargets(sequence));
+				}
+				assertEquals(message, targets, generator.getUncoveredTargets());
+			}
+		} catch (Exception ex) {
+			System.out.print(ex);
+			fail();
+		}
+	}
+	
+	@Test
+	public void testSubexpressionMemo() {
+		List<String> eventsList = getMotivatingEventsList();
+		
+		try {
+			// Expected: an event or event set is canonical regardless of its order and duplicates
+			Constraint set1 = new ConstraintParser("_ {W, R, W}", eventsList).parse().getConstraint();
+			Constraint set2 = new ConstraintParser("_ {R, W}", eventsList).parse().getConstraint();
+			Constraint event1 = new ConstraintParser("_ R", eventsList).parse().getConstraint();
+			Constraint event2 = new ConstraintParser("_ {R}", eventsList).parse().getConstraint();
+			assertEquals(set1.canonicalText(), set2.canonicalText());
+			assertEquals(set1, set2);
+			assertEquals(set1.hashCode(), set2.hashCode());
+			assertEquals(event1, event2);
+			assertFalse(set1.equals(event1));
+			
+			// Expected: the repeated subexpression is compiled once, and the automaton is the same as compiled separately
+			String open = "(_ O && O .~. C)";
+			String constraint1 = open + " -+ {R, W, C}";
+			String constraint2 = open + " ~ O";
+			Constraint constraint = new ConstraintParser(constraint1 + " && " + constraint2, eventsList).parse().getConstraint();
+			
+			ConstraintToAutomaton convertor = new ConstraintToAutomaton(eventsList);
+			Automaton automaton = convertor.convertSequencingExprToAutomaton(constraint);
+			assertTrue(convertor.getHitsOfSubexprs() > 0);
+			
+			Automaton automaton1 = new ConstraintToAutomaton(eventsList).convertSequencingExprToAutomaton(
+					new ConstraintParser(constraint1, eventsList).parse().getConstraint());
+			Automaton automaton2 = new ConstraintToAutomaton(eventsList).convertSequencingExprToAutomaton(
+					new ConstraintParser(constraint2, eventsList).parse().getConstraint());
+			assertEquals(automaton1.intersection(automaton2), automaton);
+			
+			// Expected: the memo returns a clone, which is not modified by operations on the returned automaton
+			Automaton again = convertor.convertSequencingExprToAutomaton(constraint);
+			assertTrue(automaton != again);
+			automaton.complement().minimize();
+			assertEquals(again, convertor.convertSequencingExprToAutomaton(constraint));
+		} catch (Exception ex) {
+			System.out.print(ex);
+			fail();
+		}
+	}
+	
+	@Test
+	public void testCompiledAutomatonStore() {
+		String constraint = "O +... C && (_ O && O .~. C) -+ {R, W, C} && (_ O && O .~. C) ~ O";
+		List<String> eventsList = getMotivatingEventsList();
+		EventAlphabet alphabet = new EventAlphabet(eventsList);
+		
+		try {
+			File directory = Files.createTempDirectory("automata").toFile();
+			Constraint cons = new ConstraintParser(constraint, alphabet).parse().getConstraint();
+			
+			// the automaton is compiled at the first use
+			SolverByAutomaton compiledSolver = new SolverByAutomaton(false, alphabet, cons, 2, 6, new CompiledAutomatonStore(directory));
+			compiledSolver.getCompiledAutomaton();
+			
+			// Expected: a new store loads the compiled automaton from the directory
+			CompiledAutomatonStore store = new CompiledAutomatonStore(directory);
+			SolverByAutomaton loadedSolver = new SolverByAutomaton(false, alphabet, cons, 2, 6, store);
+			loadedSolver.getCompiledAutomaton();
+			assertEquals(1, store.getDiskHits());
+			assertEquals(0, store.getMisses());
+			new SolverByAutomaton(false, alphabet, cons, 3, 8, store).getCompiledAutomaton();
+			assertEquals(1, store.getMemoryHits());
+			
+			// Expected: the loaded automaton is the same as the compiled one
+			CompiledAutomaton compiled = compiledSolver.getCompiledAutomaton();
+			CompiledAutomaton loaded = loadedSolver.getCompiledAutomaton();
+			assertEquals(compiled.getNumberOfStates(), loaded.getNumberOfStates());
+			for (int s = 0; s < compiled.getNumberOfStates(); s++) {
+				assertEquals(compiled.isAccept(s), loaded.isAccept(s));
+				assertEquals(compiled.getDistanceToAccept(s), loaded.getDistanceToAccept(s));
+				for (int event = 0; event < MOTIVATING_EVENTS.length; event++)
+					assertEquals(compiled.step(s, event), loaded.step(s, event));
+			}
+			assertEquals(compiledSolver.getAutomaton(), loadedSolver.getAutomaton());
+			
+			// Expected: a corrupted file is compiled again
+			for (File file : directory.listFiles())
+				Files.write(file.toPath(), new byte[] {1, 2, 3});
+			store = new CompiledAutomatonStore(directory);
+			new SolverByAutomaton(false, alphabet, cons, 2, 6, store).getCompiledAutomaton();
+			assertEquals(0, store.getDiskHits());
+			assertEquals(1, store.getMisses());
+			
+			for (File file : directory.listFiles())
+				file.delete();
+			directory.delete();
+			
+			// Expected: a compiled automaton which can not be saved is reported to the caller
+			try {
+				new SolverByAutomaton(false, alphabet, cons, 2, 6, store).getCompiledAutomaton();
+				new SolverByAutomaton(false, alphabet, new ConstraintParser("O +... C", alphabet).parse().getConstraint(), 2, 6, store)
+						.getCompiledAutomaton();
+				fail();
+			} catch (IllegalStateException e) {
+				assertTrue(e.getCause() instanceof IOException);
+			}
+		} catch (Exception ex) {
+			System.out.print(ex);
+			fail();
+		}
+	}
+	
+	@Test
+	public void testDirectConstructionOfOperators() {
+		String[] events = {"a", "b", "c", "d"};
+		List<String> eventsList = new ArrayList<String>();
+		for (String event : events)
+			eventsList.add(event);
+		
+		String[] operators = {"-+", "...+", "+-", "+...", "~", ".~."};
+		// disjoint, overlapping, equal, and single events
+		String[][] operands = {{"a", "b"}, {"{a, b}", "{b, c}"}, {"{a, c}", "{a, c}"}, {"a", "{a, b, c, d}"}, {"{b, d}", "c"}};
+		
+		try {
+			for (String[] operand : operands) {
+				List<String> constraints = new ArrayList<String>();
+				constraints.add("_ " + operand[0]);
+				for (String operator : operators)
+					constraints.add(operand[0] + " " + operator + " " + operand[1]);
+				
+				for (String constraint : constraints) {
+					Constraint cons = new ConstraintParser(constraint, eventsList).parse().getConstraint();
+					
+					// Expected: the DFA constructed directly accepts the same sequences as the one by the general path
+					Automaton direct = new ConstraintToAutomaton(eventsList).convertSequencingExprToAutomaton(cons);
+					ConstraintToAutomaton generalConvertor = new ConstraintToAutomaton(eventsList);
+					generalConvertor.setDirectConstruction(false);
+					Automaton general = generalConvertor.convertSequencingExprToAutomaton(cons);
+					assertEquals(constraint, general, direct);
+				}
+			}
+		} catch (Exception ex) {
+			System.out.print(ex);
+			fail();
+		}
+	}
+	
+	@Test
+	public void testLazyProductAutomaton() {
+		//motivating example {Open, Read, Write, Close} with events X, Y not mentioned in constraints
+		String[] events = {"O", "R", "W", "C", "X", "Y"};
+		String constraint = "O +... C && (_ O && O .~. C) -+ {R, W, C} && (_ O && O .~. C) ~ O";
+		int maxLength = 5;
+		
+		List<String> eventsList = new ArrayList<String>();
+		for (String event : events)
+			eventsList.add(event);
+		
+		try {
+			TypeInfo ti = new ConstraintParser(constraint, eventsList).parse();
+			
+			// the bounded repetition, and the unbounded one where failed searches are memorized
+			for (int maxRepetition : new int[] {2, maxLength}) {
+				SolverByAutomaton solver = new SolverByAutomaton(false, eventsList, ti.getConstraint(), maxRepetition, maxLength);
+				SolverByAutomaton lazySolver = new SolverByAutomaton(false, eventsList, ti.getConstraint(), maxRepetition, maxLength);
+				lazySolver.setLazyProductMode(true);
+				
+				// Expected: 3 conjuncts are compiled separately
+				assertEquals(3, lazySolver.getLazyProductAutomaton().getNumberOfComponents());
+				
+				// Expected: the same validity and extensibility in both modes, for all sequences of length <= maxLength
+				int n = events.length;
+				for (int length = 0; length <= maxLength; length++) {
+					int[] sequence = new int[length];
+					for (int rank = 0; rank < Subsequences.getSizeOfEventPowers(n, length); rank++) {
+						Subsequences.unrank(rank, n, sequence);
+						
+						String seq = Arrays.toString(sequence);
+						assertEquals(seq, solver.solve(sequence, length), lazySolver.solve(sequence, length));
+						assertEquals(seq, solver.isExtendable(sequence, length), lazySolver.isExtendable(sequence, length));
+						
+						SequenceCursor cursor = lazySolver.newCursor().append(sequence, length);
+						assertEquals(seq, solver.isExtendable(sequence, length), lazySolver.isExtendable(cursor));
+					}
+				}
+				
+				// Expected: the lazy product never materializes more states than the product of its components
+				LazyProductAutomaton lazyProductAutomaton = lazySolver.getLazyProductAutomaton();
+				long numberOfTuples = 1;
+				for (int c = 0; c < lazyProductAutomaton.getNumberOfComponents(); c++)
+					numberOfTuples *= lazyProductAutomaton.getComponent(c).getNumberOfStates();
+				assertTrue(lazyProductAutomaton.getNumberOfStates() <= numberOfTuples);
+			}
+		} catch (Exception ex) {
+			System.out.print(ex);
+			fail();
+		}
+	}
+	
+	@Test
+	public void testLargeAlphabet() {
+		// more than 26 events, where only a few of them are mentioned in constraints
+		int n = 300;
+		List<String> eventsList = new ArrayList<String>();
+		for (int i = 0; i < n; i++)
+			eventsList.add("e" + i);
+		String[] constraints = {"e1 +... e298", "{e0, e150, e299} -+ {e2, e3}", "_ e100 && e100 .~. {e7, e200}"};
+		
+		try {
+			for (String constraint : constraints) {
+				Constraint cons = new ConstraintParser(constraint, eventsList).parse().getConstraint();
+				ConstraintToAutomaton convertor = new ConstraintToAutomaton(eventsList);
+				Automaton automaton = convertor.convertSequencingExprToAutomaton(cons);
+				
+				// Expected: the DFA constructed directly accepts the same sequences as the one by the general path
+				ConstraintToAutomaton generalConvertor = new ConstraintToAutomaton(eventsList);
+				generalConvertor.setDirectConstruction(false);
+				assertEquals(constraint, generalConvertor.convertSequencingExprToAutomaton(cons), automaton);
+				
+				// Expected: events not mentioned in the constraint share one class, and every event steps as in the automaton
+				CompiledAutomaton compiled = new CompiledAutomaton(automaton, convertor);
+				assertTrue(constraint, compiled.getNumberOfClasses() <= 8);
+				assertEquals(compiled.getEventClass(5), compiled.getEventClass(n - 3));
+				assertEquals(automaton, compiled.toAutomaton(convertor));
+				
+				// Expected: the classes are saved and loaded by the store
+				File directory = Files.createTempDirectory("automata").toFile();
+				EventAlphabet alphabet = convertor.getAlphabet();
+				String key = CompiledAutomatonStore.getKey(cons, alphabet);
+				new CompiledAutomatonStore(directory).put(key, compiled);
+				CompiledAutomaton loaded = new CompiledAutomatonStore(directory).get(key, n);
+				assertEquals(compiled.getNumberOfStates(), loaded.getNumberOfStates());
+				for (int s = 0; s < compiled.getNumberOfStates(); s++) {
+					for (int event = 0; event < n; event++)
+						assertEquals(compiled.step(s, event), loaded.step(s, event));
+				}
+				
+				for (File file : directory.listFiles())
+					file.delete();
+				directory.delete();
+			}
+			
+			// Expected: the lazy product of all constraints is over classes of events, 
+			// where events not mentioned in any constraint share one class
+			CompiledAutomaton[] components = new CompiledAutomaton[constraints.length];
+			for (int c = 0; c < constraints.length; c++) {
+				ConstraintToAutomaton convertor = new ConstraintToAutomaton(eventsList);
+				Constraint cons = new ConstraintParser(constraints[c], eventsList).parse().getConstraint();
+				components[c] = new CompiledAutomaton(convertor.convertSequencingExprToAutomaton(cons), convertor);
+			}
+			LazyProductAutomaton product = new LazyProductAutomaton(components);
+			assertTrue(product.getNumberOfClasses() <= 16);
+			assertEquals(product.getEventClass(5), product.getEventClass(n - 3));
+			int[] sequence = {1, 100, 7, 0, 2, 5, 298, n - 3};
+			for (int length = 0; length <= sequence.length; length++) {
+				boolean isAccept = true;
+				for (CompiledAutomaton component : components)
+					isAccept &= component.accepts(sequence, length);
+				assertEquals(isAccept, product.isAccept(product.run(sequence, length)));
+			}
+		} catch (Exception ex) {
+			System.out.print(ex);
+			fail();
+		}
+		
+		// Expected: targets are ranked beyond Integer.MAX_VALUE, e.g., 300^4 targets
+		TargetUniverse universe = new TargetUniverse(eventsList, 4);
+		assertTrue(universe.getSize() > Integer.MAX_VALUE);
+		List<String> lastTarget = Arrays.asList("e299", "e299", "e299", "e299");
+		assertEquals(universe.getSize() - 1, universe.rank(lastTarget));
+		assertEquals(lastTarget, universe.getTargetSeq(universe.getSize() - 1));
+		
+		// Expected: an alphabet beyond the range of chars is rejected
+		List<String> hugeEventsList = new ArrayList<String>();
+		for (int i = 0; i <= ConstraintToAutomaton.MAX_ALPHABET_SIZE; i++)
+			hugeEventsList.add("e" + i);
+		try {
+			new ConstraintToAutomaton(hugeEventsList);
+			fail();
+		} catch (IllegalArgumentException ex) {
+		}
+	}
+	
+	@Test
+	public void testSequenceCursor() {
+		//motivating example {Open, Read, Write, Close} with events X, Y not mentioned in constraints
+		String[] events = {"O", "R", "W", "C", "X", "Y"};
+		String constraint = "O +... C && (_ O && O .~. C) -+ {R, W, C}";
+		int maxRepetition = 2;
+		int maxLength = 5;
+		
+		List<String> eventsList = new ArrayList<String>();
+		for (String event : events)
+			eventsList.add(event);
+		
+		try {
+			TypeInfo ti = new ConstraintParser(constraint, eventsList).parse();
+			SolverByAutomaton solver = new SolverByAutomaton(false, eventsList, ti.getConstraint(), maxRepetition, maxLength);
+			
+			// Expected: the cursor stepped one event at a time agrees with the solver and the repetitions of the sequence
+			Map<List<Integer>, int[]> mapCountersToCounts = new HashMap<List<Integer>, int[]>();
+			int n = events.length;
+			for (int length = 0; length <= maxLength; length++) {
+				int[] sequence = new int[length];
+				for (int rank = 0; rank < Subsequences.getSizeOfEventPowers(n, length); rank++) {
+					Subsequences.unrank(rank, n, sequence);
+					SequenceCursor cursor = solver.newCursor().append(sequence, length);
+					
+					String seq = Arrays.toString(sequence);
+					assertEquals(seq, solver.solve(sequence, length), cursor.isValid());
+					assertEquals(seq, solver.isExtendable(sequence, length), cursor.isExtendable());
+					
+					int[] eventCounter = new int[n];
+					for (int event : sequence)
+						eventCounter[event]++;
+					assertTrue(seq, Arrays.equals(eventCounter, cursor.getEventCounter()));
+					for (int event = 0; event < n; event++)
+						assertEquals(seq, eventCounter[event], cursor.getCount(event));
+					
+					// Expected: the same repetitions of every event, if and only if the same sparse repetitions
+					List<Integer> counter = new ArrayList<Integer>();
+					for (int count : eventCounter)
+						counter.add(count);
+					int[] eventCounts = mapCountersToCounts.get(counter);
+					if (eventCounts == null) {
+						for (int[] otherCounts : mapCountersToCounts.values())
+							assertFalse(seq, Arrays.equals(otherCounts, cursor.getEventCounts()));
+						mapCountersToCounts.put(counter, cursor.getEventCounts());
+					}
+					else
+						assertTrue(seq, Arrays.equals(eventCounts, cursor.getEventCounts()));
+				}
+			}
+		} catch (Exception ex) {
+			System.out.print(ex);
+			fail();
+		}
+	}
+	
+	@Test
+	public void testBeamSequenceGenerator() {
+		String constraint = "O +... C && (_ O && O .~. C) -+ {R, W, C} && (_ O && O .~. C) ~ O";
+		
+		List<String> eventsList = getMotivatingEventsList();
+		
+		try {
+			TypeInfo ti = new ConstraintParser(constraint, eventsList).parse();
+			
+			for (int beamWidth : new int[] {1, 4}) {
+				List<List<String>> sequentialTestSequences = null;
+				for (boolean isParallelMode : new boolean[] {false, true}) {
+					SolverByAutomaton solver = new SolverByAutomaton(false, eventsList, ti.getConstraint(), 2, 8);
+					BeamSequenceGenerator generator = new BeamSequenceGenerator(solver, new Subsequences(MOTIVATING_EVENTS, 3, 2, true));
+					generator.setBeamWidth(beamWidth);
+					generator.setParallelMode(isParallelMode);
+					TargetBitSet uncoverableTargets = generator.getStartingPhaseGenerator().getCoverabilityAnalysis().getUncoverableTargets();
+					
+					generator.generate();
+					generator.setParallelMode(false);
+					
+					// Expected: all coverable targets are covered by valid sequences
+					String message = "beam width " + beamWidth;
+					assertEquals(message, uncoverableTargets, generator.getUncoveredTargets());
+					for (List<String> testSequence : generator.getSetOfTestSequences()) {
+						int[] sequence = generator.getUniverse().encode(testSequence);
+						assertTrue(message, solver.solve(sequence, sequence.length));
+					}
+					
+					// Expected: the same sequences in sequential and parallel modes
+					List<List<String>> testSequences = new ArrayList<List<String>>(generator.getSetOfTestSequences());
+					if (sequentialTestSequences == null)
+						sequentialTestSequences = testSequences;
+					else
+						assertEquals(message, sequentialTestSequences, testSequences);
+				}
+			}
+			
+			// Expected: beam search finds no valid sequence without any extensibility search, and no target is covered
+			SolverByAutomaton solver = new SolverByAutomaton(false, eventsList, ti.getConstraint(), 2, 8);
+			BeamSequenceGenerator generator = new BeamSequenceGenerator(solver, new Subsequences(MOTIVATING_EVENTS, 3, 2, true));
+			generator.getStartingPhaseGenerator().setExtendabilitySearchBudget(0);
+			TargetBitSet targets = new TargetBitSet(generator.getUncoveredTargets());
+			generator.generate();
+			assertTrue(generator.getStartingPhaseGenerator().isStoppedByBudget());
+			assertTrue(generator.getSetOfTestSequences().isEmpty());
+			assertEquals(targets, generator.getUncoveredTargets());
+		} catch (Exception ex) {
+			System.out.print(ex);
+			fail();
+		}
+	}
+	
+	@Test
+	public void testCoverabilityAnalysisInLazyProductMode() {
+		String[] events = {"O", "R", "W", "C", "X", "Y"};
+		String constraint = "O ...+ C && R .~. W && C ~ R";
+		// {strength, maxRepetition, maxLength}
+		int[][] configurations = {{2, 2, 5}, {2, 1, 4}, {3, 2, 6}};
+		
+		List<String> eventsList = new ArrayList<String>();
+		for (String event : events)
+			eventsList.add(event);
+		EventAlphabet alphabet = new EventAlphabet(eventsList);
+		
+		try {
+			Constraint cons = new ConstraintParser(constraint, alphabet).parse().getConstraint();
+			
+			for (int[] configuration : configurations) {
+				int t = configuration[0];
+				int maxRepetition = configuration[1];
+				int maxLength = configuration[2];
+				Subsequences subseqs = new Subsequences(events, t, maxRepetition, true);
+				
+				SolverByAutomaton solver = new SolverByAutomaton(false, eventsList, cons, maxRepetition, maxLength);
+				CoverabilityAnalysis analysis = new SequenceGeneratorByAutomaton(solver, subseqs).getCoverabilityAnalysis();
+				
+				CompiledAutomatonStore store = new CompiledAutomatonStore();
+				SolverByAutomaton lazySolver = new SolverByAutomaton(false, alphabet, cons, maxRepetition, maxLength, store);
+				lazySolver.setLazyProductMode(true);
+				CoverabilityAnalysis lazyAnalysis = new SequenceGeneratorByAutomaton(lazySolver, subseqs).getCoverabilityAnalysis();
+				
+				// Expected: the same targets are coverable in lazy product mode, without compiling the whole constraint
+				String message = Arrays.toString(configuration);
+				assertEquals(message, analysis.getCoverableTargets(), lazyAnalysis.getCoverableTargets());
+				assertEquals(message, analysis.getUncoverableTargets(), lazyAnalysis.getUncoverableTargets());
+				assertEquals(message, 3, store.getMisses());
+			}
+		} catch (Exception ex) {
+			System.out.print(ex);
+			fail();
+		}
+	}
+	
+	@Test
+	public void testParallelExtension() {
+		// {strength, maxRepetition, maxLength}
+		int[][] configurations = {{2, 2, 8}, {3, 2, 8}, {3, 3, 12}, {4, 2, 8}};
+		
+		List<String> eventsList = getMotivatingEventsList();
+		
+		try {
+			TypeInfo ti = parseMotivatingConstraint(eventsList);
+			
+			for (int[] configuration : configurations) {
+				int t = configuration[0];
+				int maxRepetition = configuration[1];
+				int maxLength = configuration[2];
+				String message = Arrays.toString(configuration);
+				
+				List<List<String>> sequentialTestSequences = null;
+				TargetBitSet sequentialUncoveredTargets = null;
+				for (boolean isParallelMode : new boolean[] {false, true}) {
+					SolverByAutomaton solver = new SolverByAutomaton(false, eventsList, ti.getConstraint(), maxRepetition, maxLength);
+					SequenceGeneratorByAutomaton generator = new SequenceGeneratorByAutomaton(solver, new Subsequences(MOTIVATING_EVENTS, t, maxRepetition, true));
+					generator.setParallelMode(isParallelMode);
+					generator.generate();
+					generator.setParallelMode(false);
+					
+					// Expected: all generated sequences are valid
+					for (List<String> testSequence : generator.getSetOfTestSequences()) {
+						int[] sequence = generator.getUniverse().encode(testSequence);
+						assertTrue(message, solver.solve(sequence, sequence.length));
+					}
+					
+					// Expected: candidates evaluated in parallel are chosen as in sequential mode, 
+					// thus the same sequences cover the same targets
+					List<List<String>> testSequences = new ArrayList<List<String>>(generator.getSetOfTestSequences());
+					if (sequentialTestSequences == null) {
+						sequentialTestSequences = testSequences;
+						sequentialUncoveredTargets = generator.getUncoveredTargets();
+					}
+					else {
+						assertEquals(message, sequentialTestSequences, testSequences);
+						assertEquals(message, sequentialUncoveredTargets, generator.getUncoveredTargets());
+					}
+				}
+			}
+		} catch (Exception ex) {
+			System.out.print(ex);
+			fail();
+		}
+	}
+	
+	@Test
+	public void testStartingPhaseBFS() {
+		// {strength, maxRepetition, maxLength}
+		int[][] configurations = {{2, 1, 2}, {2, 1, 4}, {2, 2, 8}, {3, 3, 12}};
+		// the test sequences generated by the original BFS, which is searched one node at a time
+		String[][] expectedTestSequences = {
+			{"OC"}, 
+			{"ORWC", "OWRC"}, 
+			{"OORWC", "ORORWWC", "OWORRWC", "OCORWC"}, 
+			{"OOORWC", "OROROWRWC", "OWOORRWRWC", "OCORWOC", "ORCORRWWOC", "OWROORRWWC", "OWCORWRCORWC"}, 
+		};
+		
+		List<String> eventsList = getMotivatingEventsList();
+		
+		try {
+			TypeInfo ti = parseMotivatingConstraint(eventsList);
+			
+			for (int i = 0; i < configurations.length; i++) {
+				int t = configurations[i][0];
+				int maxRepetition = configurations[i][1];
+				int maxLength = configurations[i][2];
+				
+				for (boolean isParallelMode : new boolean[] {false, true}) {
+					SolverByAutomaton solver = new SolverByAutomaton(false, eventsList, ti.getConstraint(), maxRepetition, maxLength);
+					SequenceGeneratorByAutomaton generator = new SequenceGeneratorByAutomaton(solver, new Subsequences(MOTIVATING_EVENTS, t, maxRepetition, true));
+					generator.setParallelMode(isParallelMode);
+					generator.generate();
+					generator.setParallelMode(false);
+					
+					// Expected: the BFS searched level by level (in parallel) finds the same starting sequences as the original one
+					List<String> testSequences = joinSequences(generator.getSetOfTestSequences());
+					String message = Arrays.toString(configurations[i]) + (isParallelMode ? " in parallel" : "");
+					assertEquals(message, Arrays.asList(expectedTestSequences[i]), testSequences);
+				}
+			}
+		} catch (Exception ex) {
+			System.out.print(ex);
+			fail();
+		}
+	}
+	
+	@Test
+	public void testDominancePruningInBFS() {
+		List<String> eventsList = getMotivatingEventsList();
+		
+		// Expected: a sequence is dominated by another one if every prefix covered by it is also covered by the other
+		TargetUniverse universe = new TargetUniverse(eventsList, 3);
+		CoverageState or = CoverageState.of(universe, new int[] {0, 1});
+		CoverageState owr = CoverageState.of(universe, new int[] {0, 2, 1});
+		CoverageState ro = CoverageState.of(universe, new int[] {1, 0});
+		assertTrue(or.isDominatedBy(owr));
+		assertFalse(owr.isDominatedBy(or));
+		assertFalse(or.isDominatedBy(ro));
+		assertTrue(or.isDominatedBy(CoverageState.of(universe, new int[] {0, 1})));
+		
+		try {
+			TypeInfo ti = parseMotivatingConstraint(eventsList);
+			
+			// Expected: dominated nodes are not expanded, and the starting sequences are the same as the original BFS
+			SolverByAutomaton solver = new SolverByAutomaton(false, eventsList, ti.getConstraint(), 2, 8);
+			SequenceGeneratorByAutomaton generator = new SequenceGeneratorByAutomaton(solver, new Subsequences(MOTIVATING_EVENTS, 3, 2, true));
+			generator.generate();
+			
+			String[] expectedTestSequences = {"OORWC", "ORORWWC", "OWORWRC", "OCORWC", "ORROWWC", "ORWORWC", 
+					"ORCORWWC", "OWRORWC", "OWWORRC", "OWCORRWC", "OCOWRRWC"};
+			List<String> testSequences = joinSequences(generator.getSetOfTestSequences());
+			assertEquals(Arrays.asList(expectedTestSequences), testSequences);
+			assertEquals(8, generator.getUncoveredTargets().size());
+		} catch (Exception ex) {
+			System.out.print(ex);
+			fail();
+		}
+	}
+	
+	@Test
+	public void testTargetFeasibilityIndex() {
+		List<String> eventsList = getMotivatingEventsList();
+		
+		try {
+			TypeInfo ti = parseMotivatingConstraint(eventsList);
+			SolverByAutomaton solver = new SolverByAutomaton(false, eventsList, ti.getConstraint(), 2, 8);
+			SequenceGeneratorByAutomaton generator = new SequenceGeneratorByAutomaton(solver, new Subsequences(MOTIVATING_EVENTS, 4, 2, true));
+			TargetUniverse universe = generator.getUniverse();
+			TargetBitSet targets = new TargetBitSet(generator.getUncoveredTargets());
+			TargetFeasibilityIndex index = new TargetFeasibilityIndex(universe, solver, targets);
+			
+			// Expected: every target is classified as valid, extendable or dead by the solver
+			int[] targetSeq = new int[universe.getStrength()];
+			for (long rank = targets.nextRank(0); rank >= 0; rank = targets.nextRank(rank + 1)) {
+				universe.unrank(rank, targetSeq);
+				boolean isValid = solver.solve(targetSeq, targetSeq.length);
+				boolean isExtendable = !isValid && solver.isExtendable(targetSeq, targetSeq.length);
+				assertEquals(isValid, index.isValid(rank));
+				assertEquals(isExtendable, index.isExtendable(rank));
+				assertEquals(isValid || isExtendable, index.isFeasible(rank));
+				assertEquals(!isValid && !isExtendable, index.getDeadTargets().contains(rank));
+			}
+			
+			// Expected: feasible targets are popped in the order of ranks, skipping the covered ones, 
+			// and they are popped again after rewinding
+			TargetBitSet uncoveredTargets = new TargetBitSet(targets);
+			long first = index.nextFeasibleTarget(uncoveredTargets);
+			assertEquals(index.getFeasibleTargets().nextRank(0), first);
+			uncoveredTargets.remove(first);
+			long second = index.getFeasibleTargets().nextRank(first + 1);
+			uncoveredTargets.remove(second);
+			assertEquals(index.getFeasibleTargets().nextRank(second + 1), index.nextFeasibleTarget(uncoveredTargets));
+			uncoveredTargets.add(first);
+			index.rewind();
+			assertEquals(first, index.nextFeasibleTarget(uncoveredTargets));
+			uncoveredTargets.removeAll(index.getFeasibleTargets());
+			assertEquals(-1, index.nextFeasibleTarget(uncoveredTargets));
+			
+			// Expected: targets selected from the index are the same starting sequences as the original scan of targets
+			generator.generate();
+			String[] expectedTestSequences = {"OORRWC", "OOWRWRC", "ORORWWC", "ORROWC", "ORWORWC", "ORCORWC", "OWRORWC", 
+					"OWWORRC", "OWCORRWC", "OROWRWC", "ORRWOWC", "ORRCOWWC", "ORWROWC", "ORWWORC", "ORWCORWC", "OWOWRRC", 
+					"OWRROWC", "OWRWORC", "OWRCORWC", "OWWRORC", "OWWCORC", "OCOWRRWC", "ORCOWRWC", "OWCOWRRC", "OCORWRWC", "OCOWWRRC"};
+			List<String> testSequences = joinSequences(generator.getSetOfTestSequences());
+			assertEquals(Arrays.asList(expectedTestSequences), testSequences);
+			assertEquals(77, generator.getUncoveredTargets().size());
+		} catch (Exception ex) {
+			System.out.print(ex);
+			fail();
+		}
+	}
+	
+	@Test
+	public void testLookAheadWindow() {
+		// {strength, maxRepetition, maxLength}
+		int[][] configurations = {{2, 2, 8}, {3, 2, 8}, {3, 3, 12}};
+		
+		List<String> eventsList = getMotivatingEventsList();
+		
+		try {
+			TypeInfo ti = parseMotivatingConstraint(eventsList);
+			
+			for (int[] configuration : configurations) {
+				int t = configuration[0];
+				int maxRepetition = configuration[1];
+				int maxLength = configuration[2];
+				
+				SolverByAutomaton solver = new SolverByAutomaton(false, eventsList, ti.getConstraint(), maxRepetition, maxLength);
+				SequenceGeneratorByAutomaton generator = new SequenceGeneratorByAutomaton(solver, new Subsequences(MOTIVATING_EVENTS, t, maxRepetition, true));
+				generator.generate();
+				List<List<String>> originalTestSequences = new ArrayList<List<String>>(generator.getSetOfTestSequences());
+				
+				for (int window : new int[] {1, 2, 3}) {
+					List<List<String>> sequentialTestSequences = null;
+					for (boolean isParallelMode : new boolean[] {false, true}) {
+						solver = new SolverByAutomaton(false, eventsList, ti.getConstraint(), maxRepetition, maxLength);
+						generator = new SequenceGeneratorByAutomaton(solver, new Subsequences(MOTIVATING_EVENTS, t, maxRepetition, true));
+						generator.setLookAheadWindowSize(window);
+						generator.setParallelMode(isParallelMode);
+						TargetBitSet uncoverableTargets = generator.getCoverabilityAnalysis().getUncoverableTargets();
+						generator.generate();
+						generator.setParallelMode(false);
+						
+						String message = Arrays.toString(configuration) + " window " + window + (isParallelMode ? " in parallel" : "");
+						List<List<String>> testSequences = new ArrayList<List<String>>(generator.getSetOfTestSequences());
+						
+						// Expected: the window of 1 event is the original greedy choice
+						if (window == 1)
+							assertEquals(message, originalTestSequences, testSequences);
+						
+						// Expected: all coverable targets are covered by valid sequences
+						assertEquals(message, uncoverableTargets, generator.getUncoveredTargets());
+						for (List<String> testSequence : testSequences) {
+							int[] sequence = generator.getUniverse().encode(testSequence);
+							assertTrue(message, solver.solve(sequence, sequence.length));
+						}
+						
+						// Expected: ties are broken by look-ahead in the same way in sequential and parallel modes
+						if (sequentialTestSequences == null)
+							sequentialTestSequences = testSequences;
+						else
+							assertEquals(message, sequentialTestSequences, testSequences);
+					}
+				}
+			}
+		} catch (Exception ex) {
+			System.out.print(ex);
+			fail();
+		}
+	}
+	
+	@Test
+	public void testBatchGeneration() {
+		// {strength, maxRepetition, maxLength}
+		int[][] configurations = {{2, 2, 8}, {3, 2, 8}, {3, 3, 12}, {4, 2, 8}};
+		
+		List<String> eventsList = getMotivatingEventsList();
+		
+		try {
+			TypeInfo ti = parseMotivatingConstraint(eventsList);
+			
+			for (int[] configuration : configurations) {
+				int t = configuration[0];
+				int maxRepetition = configuration[1];
+				int maxLength = configuration[2];
+				
+				for (int batchSize : new int[] {2, 4}) {
+					for (boolean isParallelMode : new boolean[] {false, true}) {
+						SolverByAutomaton solver = new SolverByAutomaton(false, eventsList, ti.getConstraint(), maxRepetition, maxLength);
+						SequenceGeneratorByAutomaton generator = new SequenceGeneratorByAutomaton(solver, new Subsequences(MOTIVATING_EVENTS, t, maxRepetition, true));
+						generator.setBatchSize(batchSize);
+						generator.setParallelMode(isParallelMode);
+						TargetUniverse universe = generator.getUniverse();
+						TargetBitSet targets = new TargetBitSet(generator.getUncoveredTargets());
+						TargetBitSet uncoverableTargets = generator.getCoverabilityAnalysis().getUncoverableTargets();
+						generator.generate();
+						generator.setParallelMode(false);
+						
+						// Expected: all coverable targets are covered by valid sequences, 
+						// and the uncovered targets are exactly the ones not covered by them, though targets are claimed concurrently
+						String message = Arrays.toString(configuration) + " batch " + batchSize + (isParallelMode ? " in parallel" : "");
+						assertEquals(message, uncoverableTargets, generator.getUncoveredTargets());
+						SuiteReducer reducer = new SuiteReducer(universe, targets);
+						for (List<String> testSequence : generator.getSetOfTestSequences()) {
+							int[] sequence = universe.encode(testSequence);
+							assertTrue(message, solver.solve(sequence, sequence.length));
+							targets.removeAll(reducer.getCoveredTargets(sequence));
+						}
+						assertEquals(message, targets, generator.getUncoveredTargets());
+					}
+				}
+			}
+		} catch (Exception ex) {
+			System.out.print(ex);
+			fail();
+		}
+	}
+	
+	@Test
+	public void testUndoableAppendOfCoverageState() {
+		List<String> eventsList = getMotivatingEventsList();
+		
+		// Expected: an undoable append covers the same prefixes as a copy, and undoing restores the original state
+		TargetUniverse universe = new TargetUniverse(eventsList, 3);
+		CoverageState coverage = CoverageState.of(universe, new int[] {0, 1});
+		coverage.appendUndoable(2);
+		coverage.appendUndoable(1);
+		assertEquals(CoverageState.of(universe, new int[] {0, 1, 2, 1}), coverage);
+		assertEquals(5, coverage.getAddedPrefixes().length); // W, OW, RW by W; RR, WR by R, whose R and OR are covered already
+		
+		coverage.undoAppend();
+		assertEquals(CoverageState.of(universe, new int[] {0, 1, 2}), coverage);
+		coverage.undoAppend();
+		assertEquals(CoverageState.of(universe, new int[] {0, 1}), coverage);
+		assertEquals(0, coverage.getAddedPrefixes().length);
+		
+		try {
+			coverage.undoAppend();
+			fail();
+		} catch (IllegalStateException ex) {
+			// Expected: no append to be undone
+		}
+	}
+	
+	@Test
+	public void testTargetBitSetAcrossWords() {
+		// 200 targets are stored in 4 words of 64 bits
+		TargetBitSet targets = new TargetBitSet(200);
+		for (long rank : new long[] {0, 63, 64, 127, 128, 199})
+			targets.add(rank);
+		assertEquals(6, targets.size());
+		
+		// Expected: the next rank is found at and across the boundaries of words
+		assertEquals(0, targets.nextRank(0));
+		assertEquals(63, targets.nextRank(1));
+		assertEquals(64, targets.nextRank(64));
+		assertEquals(127, targets.nextRank(65));
+		assertEquals(128, targets.nextRank(128));
+		assertEquals(199, targets.nextRank(129));
+		assertEquals(-1, targets.nextRank(200));
+		targets.remove(199);
+		assertEquals(-1, targets.nextRank(129));
+		
+		// Expected: set operations apply to every word
+		TargetBitSet others = new TargetBitSet(200);
+		others.add(64);
+		others.add(127);
+		others.add(150);
+		assertTrue(targets.intersects(others));
+		targets.removeAll(others);
+		assertEquals(3, targets.size());
+		assertFalse(targets.contains(64));
+		assertTrue(targets.contains(63));
+		assertEquals(128, targets.nextRank(64));
+		assertFalse(targets.intersects(others));
+		
+		others.remove(64);
+		others.remove(127);
+		others.add(128);
+		assertTrue(targets.intersects(others));
+		
+		try {
+			new TargetBitSet(TargetBitSet.MAX_CAPACITY + 1);
+			fail();
+		} catch (IllegalArgumentException ex) {
+			// Expected: too many targets to be stored
+		}
+	}
+	
+	@Test
+	public void testNewlyCoveredByCoverageState() {
+		List<String> eventsList = getMotivatingEventsList();
+		int n = eventsList.size();
+		int t = 3;
+		TargetUniverse universe = new TargetUniverse(eventsList, t);
+		
+		// Expected: the newly covered targets and covered prefixes after appending an event are the same as a scan by EncodedSequence.covers, 
+		// for all sequences of length <= 4
+		for (int length = 0; length <= 4; length++) {
+			int[] sequence = new int[length];
+			for (long rank = 0; rank < Subsequences.getSizeOfEventPowers(n, length); rank++) {
+				Subsequences.unrank(rank, n, sequence);
+				EncodedSequence encodedSequence = new EncodedSequence(sequence, n);
+				
+				// every other target is uncovered by the other sequences, and the targets covered by this sequence are not uncovered
+				TargetBitSet uncoveredTargets = universe.newTargetSet();
+				int[] target = new int[t];
+				for (long targetRank = 0; targetRank < universe.getSize(); targetRank += 2) {
+					universe.unrank(targetRank, target);
+					if (!encodedSequence.covers(target))
+						uncoveredTargets.add(targetRank);
+				}
+				
+				for (int event = 0; event < n; event++) {
+					EncodedSequence extendedSequence = encodedSequence.append(event);
+					String message = Arrays.toString(extendedSequence.toArray());
+					
+					TargetBitSet expectedNewlyCovered = universe.newTargetSet();
+					for (long targetRank = uncoveredTargets.nextRank(0); targetRank >= 0; targetRank = uncoveredTargets.nextRank(targetRank + 1)) {
+						universe.unrank(targetRank, target);
+						if (extendedSequence.covers(target))
+							expectedNewlyCovered.add(targetRank);
+					}
+					
+					CoverageState coverage = CoverageState.of(universe, sequence);
+					TargetBitSet newlyCovered = universe.newTargetSet();
+					coverage.collectNewlyCovered(event, uncoveredTargets, newlyCovered);
+					assertEquals(message, expectedNewlyCovered, newlyCovered);
+					assertEquals(message, expectedNewlyCovered.size(), coverage.countNewlyCovered(event, uncoveredTargets));
+					
+					coverage.append(event);
+					for (int k = 0; k < t; k++) {
+						int[] prefix = new int[k];
+						for (long prefixRank = 0; prefixRank < Subsequences.getSizeOfEventPowers(n, k); prefixRank++) {
+							Subsequences.unrank(prefixRank, n, prefix);
+							assertEquals(message, extendedSequence.covers(prefix), coverage.getCoveredPrefixes(k).contains(prefixRank));
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testEventAlphabet() {
+		// duplicated events are interned once, in the order of their first appearance
+		EventAlphabet alphabet = new EventAlphabet(new String[] {"O", "R", "O", "W", "C", "R"});
+		assertEquals(4, alphabet.size());
+		assertEquals(getMotivatingEventsList(), alphabet.getEvents());
+		
+		// Expected: an event and its index map to each other
+		for (int index = 0; index < alphabet.size(); index++) {
+			String event = alphabet.getEvent(index);
+			assertTrue(alphabet.contains(event));
+			assertEquals(index, alphabet.getIndex(event));
+		}
+		List<String> sequence = Arrays.asList("O", "W", "R", "W", "C");
+		assertArrayEquals(new int[] {0, 2, 1, 2, 3}, alphabet.encode(sequence));
+		assertEquals(sequence, alphabet.decode(alphabet.encode(sequence)));
+		assertEquals(sequence.subList(0, 2), alphabet.decode(alphabet.encode(sequence), 2));
+		assertEquals(new EventAlphabet(getMotivatingEventsList()), alphabet);
+		
+		// Expected: an unknown event has no index, and a sequence containing it is rejected
+		assertFalse(alphabet.contains("X"));
+		assertEquals(-1, alphabet.getIndex("X"));
+		try {
+			alphabet.encode(Arrays.asList("O", "X", "C"));
+			fail();
+		} catch (IllegalArgumentException ex) {
+			// Expected: X is not supported
+		}
+	}
 
 }
@@ -0,0 +1,347 @@
+package sequencingConstraints;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.State;
+import dk.brics.automaton.Transition;
+
+/**
+ * a deterministic automaton compiled into a dense transition table over classes of events,
+ * i.e., transitions[state * numberOfClasses + classOfEvent[event]] = next state, or DEAD if there is no transition,
+ * with accepting states stored in a bitset.
+ *
+ * Events with the same transitions from every state (e.g., events not mentioned in constraints) share a class,
+ * so that the table grows with the number of classes instead of the alphabet, and stepping costs one more lookup.
+ * Classes are computed from the ranges of chars on transitions, without stepping every event from every state.
+ * States are numbered in BFS order from the initial state 0, so that only reachable states are kept.
+ *
+ * @author Feng Duan
+ *
+ */
+public class CompiledAutomaton implements EventAutomaton {
+	public static final int DEAD = -1; // no transition, the sequence can never be accepted
+	public static final int UNREACHABLE = Integer.MAX_VALUE; // distance when no accepting state can be reached
+
+	private int alphabetSize;
+	private int numberOfStates;
+	private int numberOfClasses;
+
+	private int[] classOfEvent; // class index of every event, numbered in the order of their first events
+	private int[] transitions;
+	private long[] accepts;
+	
+	// the minimum number of events from a state to an accepting state, 0 for accepting states
+	private int[] distanceToAccept;
+	// the minimum number of events (at least one) from a state to an accepting state
+	private int[] extensionDistanceToAccept;
+
+	public CompiledAutomaton(Automaton automaton, ConstraintToAutomaton convertor) {
+		alphabetSize = convertor.getAlphabet().size();
+
+		if (!automaton.isDeterministic()) {
+			automaton = automaton.clone();
+			automaton.determinize();
+		}
+
+		// chars of events are contiguous, and the bounds of char ranges on transitions split them into intervals of events, 
+		// where all events of an interval have the same transitions from every state
+		boolean[] isIntervalStart = new boolean[alphabetSize];
+		if (alphabetSize > 0)
+			isIntervalStart[0] = true;
+		char firstChar = convertor.mappingEventIndexToChar(0);
+		for (State state : automaton.getStates()) {
+			for (Transition t : state.getTransitions()) {
+				int start = t.getMin() - firstChar;
+				int next = t.getMax() + 1 - firstChar;
+				if (start > 0 && start < alphabetSize)
+					isIntervalStart[start] = true;
+				if (next > 0 && next < alphabetSize)
+					isIntervalStart[next] = true;
+			}
+		}
+		List<Integer> intervalStarts = new ArrayList<Integer>();
+		for (int event = 0; event < alphabetSize; event++) {
+			if (isIntervalStart[event])
+				intervalStarts.add(event);
+		}
+		int numberOfIntervals = intervalStarts.size();
+
+		// number the reachable states in BFS order, stepping the first event of every interval
+		Map<State, Integer> mapStatesToIds = new HashMap<State, Integer>();
+		List<State> states = new ArrayList<State>();
+		State initialState = automaton.getInitialState();
+		mapStatesToIds.put(initialState, 0);
+		states.add(initialState);
+
+		List<int[]> rows = new ArrayList<int[]>();
+		for (int i = 0; i < states.size(); i++) {
+			State state = states.get(i);
+			int[] row = new int[numberOfIntervals];
+			for (int interval = 0; interval < numberOfIntervals; interval++) {
+				State dest = state.step(convertor.mappingEventIndexToChar(intervalStarts.get(interval)));
+				if (dest == null) {
+					row[interval] = DEAD;
+					continue;
+				}
+
+				Integer id = mapStatesToIds.get(dest);
+				if (id == null) {
+					id = states.size();
+					mapStatesToIds.put(dest, id);
+					states.add(dest);
+				}
+				row[interval] = id;
+			}
+			rows.add(row);
+		}
+		numberOfStates = states.size();
+
+		// intervals with the same column of next states are merged into one class
+		Map<List<Integer>, Integer> mapColumnsToClasses = new HashMap<List<Integer>, Integer>();
+		int[] classOfInterval = new int[numberOfIntervals];
+		List<Integer> firstIntervals = new ArrayList<Integer>();
+		for (int interval = 0; interval < numberOfIntervals; interval++) {
+			List<Integer> column = new ArrayList<Integer>(numberOfStates);
+			for (int i = 0; i < numberOfStates; i++)
+				column.add(rows.get(i)[interval]);
+
+			Integer k = mapColumnsToClasses.get(column);
+			if (k == null) {
+				k = mapColumnsToClasses.size();
+				mapColumnsToClasses.put(column, k);
+				firstIntervals.add(interval);
+			}
+			classOfInterval[interval] = k;
+		}
+		numberOfClasses = mapColumnsToClasses.size();
+
+		classOfEvent = new int[alphabetSize];
+		for (int interval = 0; interval < numberOfIntervals; interval++) {
+			int end = interval + 1 < numberOfIntervals ? intervalStarts.get(interval + 1) : alphabetSize;
+			Arrays.fill(classOfEvent, intervalStarts.get(interval), end, classOfInterval[interval]);
+		}
+
+		transitions = new int[numberOfStates * numberOfClasses];
+		accepts = new long[(numberOfStates + 63) >> 6];
+		for (int i = 0; i < numberOfStates; i++) {
+			int[] row = rows.get(i);
+			for (int k = 0; k < numberOfClasses; k++)
+				transitions[i * numberOfClasses + k] = row[firstIntervals.get(k)];
+			if (states.get(i).isAccept())
+				accepts[i >> 6] |= 1L << i;
+		}
+		
+		computeDistancesToAccept();
+	}
+	
+	/**
+	 * restore a compiled automaton from its transition table, e.g., loaded by CompiledAutomatonStore
+	 * 
+	 * @param numberOfStates
+	 * @param numberOfClasses
+	 * @param classOfEvent class index of every event
+	 * @param transitions transitions[state * numberOfClasses + class] = next state, or DEAD
+	 * @param accepts bitset of accepting states
+	 */
+	CompiledAutomaton(int numberOfStates, int numberOfClasses, int[] classOfEvent, int[] transitions, long[] accepts) {
+		this.alphabetSize = classOfEvent.length;
+		this.numberOfStates = numberOfStates;
+		this.numberOfClasses = numberOfClasses;
+		this.classOfEvent = classOfEvent;
+		this.transitions = transitions;
+		this.accepts = accepts;
+		
+		computeDistancesToAccept();
+	}
+	
+	// backward BFS from all accepting states over reversed transitions
+	private void computeDistancesToAccept() {
+		// reversed transitions as adjacency lists in arrays: sources of state s are predecessors[offsets[s] .. offsets[s+1])
+		int[] offsets = new int[numberOfStates + 1];
+		for (int dest : transitions) {
+			if (dest != DEAD)
+				offsets[dest + 1]++;
+		}
+		for (int s = 0; s < numberOfStates; s++)
+			offsets[s + 1] += offsets[s];
+		int[] predecessors = new int[offsets[numberOfStates]];
+		int[] filled = new int[numberOfStates];
+		for (int i = 0; i < transitions.length; i++) {
+			int dest = transitions[i];
+			if (dest != DEAD)
+				predecessors[offsets[dest] + filled[dest]++] = i / numberOfClasses;
+		}
+		
+		distanceToAccept = new int[numberOfStates];
+		int[] queue = new int[numberOfStates];
+		int head = 0;
+		int tail = 0;
+		for (int s = 0; s < numberOfStates; s++) {
+			if (isAccept(s)) {
+				distanceToAccept[s] = 0;
+				queue[tail++] = s;
+			}
+			else
+				distanceToAccept[s] = UNREACHABLE;
+		}
+		while (head < tail) {
+			int s = queue[head++];
+			for (int i = offsets[s]; i < offsets[s + 1]; i++) {
+				int source = predecessors[i];
+				if (distanceToAccept[source] == UNREACHABLE) {
+					distanceToAccept[source] = distanceToAccept[s] + 1;
+					queue[tail++] = source;
+				}
+			}
+		}
+		
+		// a non-empty extension takes one step first
+		extensionDistanceToAccept = new int[numberOfStates];
+		for (int s = 0; s < numberOfStates; s++) {
+			int min = UNREACHABLE;
+			for (int k = 0; k < numberOfClasses; k++) {
+				int dest = transitions[s * numberOfClasses + k];
+				if (dest != DEAD && distanceToAccept[dest] != UNREACHABLE && distanceToAccept[dest] + 1 < min)
+					min = distanceToAccept[dest] + 1;
+			}
+			extensionDistanceToAccept[s] = min;
+		}
+	}
+
+	public int getInitialState() {
+		return 0;
+	}
+
+	/**
+	 * @param state a live state
+	 * @param event event index
+	 * @return the next state, or DEAD
+	 */
+	public int step(int state, int event) {
+		return transitions[state * numberOfClasses + classOfEvent[event]];
+	}
+
+	/**
+	 * @param sequence event indices
+	 * @param length number of events in sequence from the beginning
+	 * @return the state that sequence arrives from the initial state, or DEAD
+	 */
+	public int run(int[] sequence, int length) {
+		int state = 0;
+		for (int i = 0; i < length; i++) {
+			state = transitions[state * numberOfClasses + classOfEvent[sequence[i]]];
+			if (state == DEAD)
+				return DEAD;
+		}
+		return state;
+	}
+
+	public boolean isAccept(int state) {
+		return state != DEAD && (accepts[state >> 6] & (1L << state)) != 0;
+	}
+
+	/**
+	 * @param sequence event indices
+	 * @param length number of events in sequence from the beginning
+	 * @return true if the sequence is accepted
+	 */
+	public boolean accepts(int[] sequence, int length) {
+		return isAccept(run(sequence, length));
+	}
+
+	/**
+	 * @param state a live state
+	 * @return the minimum number of events to reach an accepting state, or UNREACHABLE
+	 */
+	public int getDistanceToAccept(int state) {
+		return distanceToAccept[state];
+	}
+	
+	/**
+	 * @param state a live state
+	 * @return the minimum number of events (at least one) to reach an accepting state, or UNREACHABLE
+	 */
+	public int getExtensionDistanceToAccept(int state) {
+		return extensionDistanceToAccept[state];
+	}
+
+	public int getNumberOfStates() {
+		return numberOfStates;
+	}
+
+	public int getAlphabetSize() {
+		return alphabetSize;
+	}
+	
+	/**
+	 * @return the number of classes of events with the same transitions from every state
+	 */
+	public int getNumberOfClasses() {
+		return numberOfClasses;
+	}
+	
+	/**
+	 * @param event event index
+	 * @return the class index of the event, where classes are numbered in the order of their first events
+	 */
+	public int getEventClass(int event) {
+		return classOfEvent[event];
+	}
+	
+	int[] getClassOfEvent() {
+		return classOfEvent;
+	}
+	
+	int[] getTransitions() {
+		return transitions;
+	}
+	
+	long[] getAccepts() {
+		return accepts;
+	}
+	
+	/**
+	 * @param convertor the mapping from event indices to chars
+	 * @return the deterministic automaton of the transition table, with one transition per range of contiguous events to the same state
+	 */
+	public Automaton toAutomaton(ConstraintToAutomaton convertor) {
+		State[] states = new State[numberOfStates];
+		for (int s = 0; s < numberOfStates; s++) {
+			states[s] = new State();
+			states[s].setAccept(isAccept(s));
+		}
+		
+		// ranges of contiguous events in the same class, runStarts[r] is the first event of range r
+		List<Integer> runStarts = new ArrayList<Integer>();
+		for (int event = 0; event < alphabetSize; event++) {
+			if (event == 0 || classOfEvent[event] != classOfEvent[event - 1])
+				runStarts.add(event);
+		}
+		runStarts.add(alphabetSize);
+		
+		for (int s = 0; s < numberOfStates; s++) {
+			int r = 0;
+			while (r < runStarts.size() - 1) {
+				int dest = step(s, runStarts.get(r));
+				// adjacent ranges to the same state are merged
+				int end = r + 1;
+				while (end < runStarts.size() - 1 && step(s, runStarts.get(end)) == dest)
+					end++;
+				if (dest != DEAD)
+					states[s].addTransition(new Transition(convertor.mappingEventIndexToChar(runStarts.get(r)), 
+							convertor.mappingEventIndexToChar(runStarts.get(end) - 1), states[dest]));
+				r = end;
+			}
+		}
+		
+		Automaton automaton = new Automaton();
+		automaton.setInitialState(states[0]);
+		automaton.setDeterministic(true);
+		return automaton;
+	}
+}
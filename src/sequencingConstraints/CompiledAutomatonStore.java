@@ -0,0 +1,285 @@
+package sequencingConstraints;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import util.EventAlphabet;
+
+/**
+ * a content-addressed store of compiled automata, so that the same constraint over the same events
+ * is translated, complemented and minimized only once, across generations and across runs.
+ *
+ * The key of a compiled automaton is the SHA-256 of the version of translation, the events in order and the canonical text of the constraint,
+ * since the automaton only depends on them (not on the Maximum Repetition or the Maximum Length).
+ * The directory is only used if it is given, and should be owned by the user, since the automata in it are trusted.
+ * Compiled automata are kept in memory, and also saved in the directory as files "key.dfa" in a compact binary format:
+ *   magic "SCDA" (int), version (byte), width of transitions in bytes (byte), alphabet size (int), number of states (int),
+ *   number of classes of events (int), number of ranges of events (int), ranges (first event and class, int pairs),
+ *   transitions of classes (next state + 1, 0 for DEAD) in the width, and the bitset of accepting states (long[]).
+ * Classes of events are saved as ranges of contiguous events in the same class, so that the file does not grow with the alphabet.
+ * Files are loaded through memory-mapped I/O, and written to a temporary file and moved, so that a reader never sees a partial file.
+ *
+ * @author Feng Duan
+ *
+ */
+public class CompiledAutomatonStore {
+	private static final int MAGIC = 0x53434441; // "SCDA"
+	private static final byte VERSION = 2;
+	private static final String SUFFIX = ".dfa";
+	private static final int HEADER_SIZE = 4 + 1 + 1 + 4 + 4 + 4 + 4;
+
+	private File directory; // null if compiled automata are only kept in memory
+
+	private Map<String, CompiledAutomaton> mapKeysToAutomata = new HashMap<String, CompiledAutomaton>();
+
+	private int memoryHits = 0;
+	private int diskHits = 0;
+	private int misses = 0;
+
+	// in memory only
+	public CompiledAutomatonStore() {
+		this(null);
+	}
+
+	/**
+	 * @param directory where compiled automata are saved, created if it does not exist
+	 */
+	public CompiledAutomatonStore(File directory) {
+		this.directory = directory;
+		if (directory != null && !directory.isDirectory() && !directory.mkdirs())
+			throw new IllegalArgumentException("Directory " + directory + " can not be created!");
+	}
+
+	/**
+	 * @param constraint
+	 * @param alphabet
+	 * @return the content address of the compiled automaton of the constraint over the events by the current translation
+	 */
+	public static String getKey(Constraint constraint, EventAlphabet alphabet) {
+		StringBuilder text = new StringBuilder();
+		text.append(ConstraintToAutomaton.TRANSLATION_VERSION).append('\n');
+		for (String event : alphabet.getEvents())
+			text.append(event).append('\n');
+		text.append('\n').append(constraint.canonicalText());
+
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.toString().getBytes(Charset.forName("UTF-8")));
+			StringBuilder key = new StringBuilder();
+			for (byte b : digest)
+				key.append(String.format("%02x", b & 0xff));
+			return key.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @param key
+	 * @param alphabetSize the number of events
+	 * @return the compiled automaton in memory or in the directory, or null if it is not stored
+	 */
+	public synchronized CompiledAutomaton get(String key, int alphabetSize) {
+		CompiledAutomaton compiledAutomaton = mapKeysToAutomata.get(key);
+		if (compiledAutomaton != null) {
+			memoryHits++;
+			return compiledAutomaton;
+		}
+
+		if (directory != null) {
+			File file = new File(directory, key + SUFFIX);
+			if (file.isFile()) {
+				compiledAutomaton = read(file.toPath(), alphabetSize);
+				if (compiledAutomaton != null) {
+					diskHits++;
+					mapKeysToAutomata.put(key, compiledAutomaton);
+					return compiledAutomaton;
+				}
+			}
+		}
+
+		misses++;
+		return null;
+	}
+
+	/**
+	 * @param key
+	 * @param compiledAutomaton kept in memory even if it can not be saved into the directory
+	 * @throws IOException if the compiled automaton can not be saved into the directory
+	 */
+	public synchronized void put(String key, CompiledAutomaton compiledAutomaton) throws IOException {
+		mapKeysToAutomata.put(key, compiledAutomaton);
+
+		if (directory != null)
+			write(new File(directory, key + SUFFIX).toPath(), compiledAutomaton);
+	}
+
+	// null if the file is not a compiled automaton over the same number of events, then it is compiled and saved again
+	private CompiledAutomaton read(Path path, int alphabetSize) {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < HEADER_SIZE)
+				return null;
+
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			if (buffer.getInt() != MAGIC || buffer.get() != VERSION)
+				return null;
+			int width = buffer.get();
+			if (buffer.getInt() != alphabetSize)
+				return null;
+			int numberOfStates = buffer.getInt();
+			int numberOfClasses = buffer.getInt();
+			int numberOfRanges = buffer.getInt();
+			if (numberOfStates <= 0 || numberOfClasses < 0 || numberOfClasses > alphabetSize
+					|| numberOfRanges < 0 || numberOfRanges > alphabetSize || (width != 1 && width != 2 && width != 4))
+				return null;
+
+			int numberOfAcceptWords = (numberOfStates + 63) >> 6;
+			if (size != HEADER_SIZE + 8L * numberOfRanges + (long) numberOfStates * numberOfClasses * width + 8L * numberOfAcceptWords)
+				return null;
+
+			// the first range starts at event 0, and ranges are in increasing order
+			int[] rangeStarts = new int[numberOfRanges + 1];
+			int[] rangeClasses = new int[numberOfRanges];
+			for (int r = 0; r < numberOfRanges; r++) {
+				rangeStarts[r] = buffer.getInt();
+				rangeClasses[r] = buffer.getInt();
+				if ((r == 0 ? rangeStarts[r] != 0 : rangeStarts[r] <= rangeStarts[r - 1]) || rangeStarts[r] >= alphabetSize
+						|| rangeClasses[r] < 0 || rangeClasses[r] >= numberOfClasses)
+					return null;
+			}
+			if (numberOfRanges == 0 && alphabetSize > 0)
+				return null;
+			rangeStarts[numberOfRanges] = alphabetSize;
+
+			int[] classOfEvent = new int[alphabetSize];
+			for (int r = 0; r < numberOfRanges; r++)
+				Arrays.fill(classOfEvent, rangeStarts[r], rangeStarts[r + 1], rangeClasses[r]);
+
+			int[] transitions = new int[numberOfStates * numberOfClasses];
+			for (int i = 0; i < transitions.length; i++) {
+				int value;
+				if (width == 1)
+					value = buffer.get() & 0xff;
+				else if (width == 2)
+					value = buffer.getShort() & 0xffff;
+				else
+					value = buffer.getInt();
+				if (value < 0 || value > numberOfStates)
+					return null;
+				transitions[i] = value - 1; // 0 for DEAD
+			}
+
+			long[] accepts = new long[numberOfAcceptWords];
+			for (int i = 0; i < accepts.length; i++)
+				accepts[i] = buffer.getLong();
+
+			return new CompiledAutomaton(numberOfStates, numberOfClasses, classOfEvent, transitions, accepts);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private void write(Path path, CompiledAutomaton compiledAutomaton) throws IOException {
+		int numberOfStates = compiledAutomaton.getNumberOfStates();
+		int[] transitions = compiledAutomaton.getTransitions();
+		long[] accepts = compiledAutomaton.getAccepts();
+		int[] classOfEvent = compiledAutomaton.getClassOfEvent();
+
+		// ranges of contiguous events in the same class
+		List<Integer> rangeStarts = new ArrayList<Integer>();
+		for (int event = 0; event < classOfEvent.length; event++) {
+			if (event == 0 || classOfEvent[event] != classOfEvent[event - 1])
+				rangeStarts.add(event);
+		}
+
+		// the smallest width holding next state + 1
+		int width = numberOfStates < 0xff ? 1 : numberOfStates < 0xffff ? 2 : 4;
+
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 8 * rangeStarts.size() + transitions.length * width + 8 * accepts.length);
+		buffer.putInt(MAGIC);
+		buffer.put(VERSION);
+		buffer.put((byte) width);
+		buffer.putInt(compiledAutomaton.getAlphabetSize());
+		buffer.putInt(numberOfStates);
+		buffer.putInt(compiledAutomaton.getNumberOfClasses());
+		buffer.putInt(rangeStarts.size());
+		for (int start : rangeStarts) {
+			buffer.putInt(start);
+			buffer.putInt(classOfEvent[start]);
+		}
+		for (int transition : transitions) {
+			int value = transition + 1;
+			if (width == 1)
+				buffer.put((byte) value);
+			else if (width == 2)
+				buffer.putShort((short) value);
+			else
+				buffer.putInt(value);
+		}
+		for (long word : accepts)
+			buffer.putLong(word);
+		buffer.flip();
+
+		Path temporaryPath = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.WRITE)) {
+				while (buffer.hasRemaining())
+					channel.write(buffer);
+			}
+
+			try {
+				Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temporaryPath);
+		}
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * @return the number of compiled automata found in memory
+	 */
+	public synchronized int getMemoryHits() {
+		return memoryHits;
+	}
+
+	/**
+	 * @return the number of compiled automata loaded from the directory
+	 */
+	public synchronized int getDiskHits() {
+		return diskHits;
+	}
+
+	/**
+	 * @return the number of compiled automata which are not stored, and have to be compiled
+	 */
+	public synchronized int getMisses() {
+		return misses;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "memory hits = " + memoryHits + ", disk hits = " + diskHits + ", misses = " + misses;
+	}
+}
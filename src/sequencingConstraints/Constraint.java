@@ -2,6 +2,7 @@ package sequencingConstraints;
 
 import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.TreeSet;
 
 import util.Constants;
 
@@ -16,6 +17,10 @@ public class Constraint {
 	String operator;
 	Constraint leftOperand;
 	Constraint rightOperand;
+	
+	int eventIndex = -1; // the interned index of a single event, -1 if it is not an event
+	
+	private String canonicalText; // computed at the first call of canonicalText()
 
 	public Constraint(String op, Constraint left, Constraint right) {
 		operator = op;
@@ -23,6 +28,12 @@ public class Constraint {
 		rightOperand = right;
 	}
 	
+	// a single event "e1" as Constraint("e1", null, null), with its index in EventAlphabet
+	public Constraint(String event, int index) {
+		this(event, null, null);
+		eventIndex = index;
+	}
+	
 	public boolean isNested(){
 		Set<String> sequencingOperators = new LinkedHashSet<String>();
 		for (String op : Constants.sequencingOperators)
@@ -81,6 +92,67 @@ public class Constraint {
 	}
 
 
+	/**
+	 * Canonical text as the key of structural hashing, which is the same as plainText, 
+	 * except that an event or an event set is written as the set of its distinct events in sorted order, 
+	 * e.g., "e2", "{e2}" and "{e2, e2}" are all "{e2}", and "{e2, e1}" is "{e1,e2}", 
+	 * since they are translated to the same automaton.
+	 * 
+	 * @return
+	 */
+	public String canonicalText(){
+		if (canonicalText == null) {
+			if (isEventOrSet()) {
+				Set<String> eventSet = new TreeSet<String>();
+				collectEvents(this, eventSet);
+				
+				StringBuilder text = new StringBuilder(Constants.OPENBRACE);
+				for (String event : eventSet) {
+					if (text.length() > 1)
+						text.append(",");
+					text.append(event);
+				}
+				canonicalText = text.append("}").toString();
+			}
+			else {
+				String left = leftOperand == null ? "" : leftOperand.canonicalText();
+				String right = rightOperand == null ? "" : rightOperand.canonicalText();
+				canonicalText = operator + "(" + left + "," + right + ")";
+			}
+		}
+		return canonicalText;
+	}
+	
+	// collect all events in an event or event set
+	private static void collectEvents(Constraint cons, Set<String> eventSet){
+		if (cons == null)
+			return;
+		
+		if (cons.leftOperand == null && cons.rightOperand == null)
+			eventSet.add(cons.operator);
+		else {
+			collectEvents(cons.leftOperand, eventSet);
+			collectEvents(cons.rightOperand, eventSet);
+		}
+	}
+	
+	// structurally equal constraints have the same canonical text
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof Constraint))
+			return false;
+		
+		return canonicalText().equals(((Constraint) obj).canonicalText());
+	}
+	
+	@Override
+	public int hashCode() {
+		return canonicalText().hashCode();
+	}
+
+
 	/**
 	 * @return the operator
 	 */
@@ -103,4 +175,12 @@ public class Constraint {
 	public Constraint getRightOperand() {
 		return rightOperand;
 	}
+
+
+	/**
+	 * @return the eventIndex of a single event interned at parse time, or -1 if unknown
+	 */
+	public int getEventIndex() {
+		return eventIndex;
+	}
 }
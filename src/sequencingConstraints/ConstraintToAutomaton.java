@@ -16,6 +16,7 @@ import sequencingConstraints.Constraint;
 import sequencingConstraints.TypeInfo;
 import sequencingConstraints.constraintParser.ConstraintParser;
 import util.Constants;
+import util.EventAlphabet;
 
 /**
  * translate sequencing constraint to automaton
@@ -26,18 +27,47 @@ import util.Constants;
 public class ConstraintToAutomaton {
 	boolean isDebugMode = false;
 	
+	// the char of event index i is FIRST_CHAR + i, thus chars of events are contiguous
+	private static final char FIRST_CHAR = 'a';
+	
+	// the max number of events, whose chars are FIRST_CHAR - Character.MAX_VALUE
+	public static final int MAX_ALPHABET_SIZE = Character.MAX_VALUE - FIRST_CHAR + 1;
+	
+	// the version of the translation from constraints to automata, 
+	// which should be increased whenever the translation changes, so that stored automata of older translations are not reused
+	public static final int TRANSLATION_VERSION = 1;
+	
+	EventAlphabet alphabet;
+	
 	Set<String> events = new LinkedHashSet<String>();
 	Set<Character> chars = new LinkedHashSet<Character>();
 	
 	Map<String, Character> mapEventsToChars = new HashMap<String, Character>();
 	Map<Character, String> mapCharsToEvents = new HashMap<Character, String>();
+	
+	// minimized automata of compiled subexpressions, keyed by their canonical text, for the alphabet of this convertor
+	private Map<String, Automaton> mapSubexprsToAutomata = new HashMap<String, Automaton>();
+	private int hitsOfSubexprs = 0;
+	
+	private Automaton anyAutomaton; // "e*", built at the first use
+	
+	// sequencing operators on events/sets are constructed as DFAs directly, instead of by complement and minimization
+	private boolean isDirectConstruction = true;
+	
+	private static final int DEAD = -1; // no transition in direct construction
 
 	public ConstraintToAutomaton(List<String> eventsList) {
-		for (String event : eventsList) {
-			events.add(event);
-		}
+		this(new EventAlphabet(eventsList));
+	}
+	
+	public ConstraintToAutomaton(EventAlphabet eventAlphabet) {
+		alphabet = eventAlphabet;
+		events.addAll(alphabet.getEvents());
+		
+		if (events.size() > MAX_ALPHABET_SIZE)
+			throw new IllegalArgumentException("Doesn't support more than " + MAX_ALPHABET_SIZE + " unique events!");
 		
-		char c = 'a'; // 'a' - 'z'
+		char c = FIRST_CHAR; // 'a', 'b', ..., and beyond 'z' for more than 26 events
 		for (String event : events) {
 			chars.add(c);
 			mapEventsToChars.put(event, c);
@@ -47,18 +77,12 @@ public class ConstraintToAutomaton {
 		
 		System.out.println(events.toString());
 		System.out.println(chars.toString());
-		
-		try {
-			if (events.size() > 26)
-				throw new Exception("Doesn't support more than 26 unique events!");
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
 	}
 	
 	public char mappingEventToChar(String event) {
-		if (mapEventsToChars.containsKey(event)) {
-			return mapEventsToChars.get(event);
+		Character c = mapEventsToChars.get(event);
+		if (c != null) {
+			return c;
 		}
 		else {
 			try {
@@ -70,12 +94,29 @@ public class ConstraintToAutomaton {
 		return 0;
 	}
 	
+	// the interned event index is mapped to char without lookup
+	public char mappingEventIndexToChar(int eventIndex) {
+		return (char) (FIRST_CHAR + eventIndex);
+	}
+	
+	/**
+	 * @param c
+	 * @return the event index of char c, or -1 if c is not mapped from any event
+	 */
+	public int mappingCharToEventIndex(char c) {
+		int eventIndex = c - FIRST_CHAR;
+		if (eventIndex < 0 || eventIndex >= alphabet.size())
+			return -1;
+		return eventIndex;
+	}
+	
 	public String mappingSequenceToCharArray(List<String> sequence) {
 		char[] chars = new char[sequence.size()];
 		for (int i=0; i<sequence.size(); i++) {
 			String event = sequence.get(i);
-			if (mapEventsToChars.containsKey(event)) {
-				chars[i] = mapEventsToChars.get(event);
+			Character c = mapEventsToChars.get(event);
+			if (c != null) {
+				chars[i] = c;
 			}
 			else {
 				try {
@@ -86,11 +127,15 @@ public class ConstraintToAutomaton {
 			}
 		}
 		
-		String charseq = "";
-		for (int i=0; i<chars.length; i++)
-			charseq += chars[i];
+		return new String(chars);
+	}
+	
+	public String mappingIndicesToCharArray(int[] sequence, int length) {
+		char[] chars = new char[length];
+		for (int i=0; i<length; i++)
+			chars[i] = mappingEventIndexToChar(sequence[i]);
 		
-		return charseq;
+		return new String(chars);
 	}
 	
 	public List<String> mappingCharArrayToSequence(char[] chars) {
@@ -157,25 +202,118 @@ public class ConstraintToAutomaton {
 	 */
 	private void addTransitions(State src, State dest, Set<String> eventSet)
 	{
-		for (String event : events) {
-			if (eventSet.contains(event)) {
-				src.addTransition(new Transition(mappingEventToChar(event), dest));
+		boolean[] isInSet = new boolean[alphabet.size()];
+		for (String event : eventSet) {
+			int eventIndex = alphabet.getIndex(event);
+			if (eventIndex >= 0)
+				isInSet[eventIndex] = true;
+		}
+		addTransitions(src, dest, isInSet);
+	}
+	
+	/**
+	 * src --eventSet-> dest, with one transition per range of contiguous events in the set, 
+	 * so that the number of transitions does not grow with the alphabet
+	 * 
+	 * @param src
+	 * @param dest
+	 * @param isInSet isInSet[eventIndex] = true if the event is in the set
+	 */
+	private void addTransitions(State src, State dest, boolean[] isInSet)
+	{
+		int event = 0;
+		while (event < isInSet.length) {
+			if (!isInSet[event]) {
+				event++;
+				continue;
+			}
+			
+			int end = event;
+			while (end + 1 < isInSet.length && isInSet[end + 1])
+				end++;
+			src.addTransition(new Transition(mappingEventIndexToChar(event), mappingEventIndexToChar(end), dest));
+			event = end + 1;
+		}
+	}
+	
+	/**
+	 * @return the automaton of "e*", which is shared by operators, since it is not modified by concatenation
+	 */
+	private Automaton getAnyAutomaton() {
+		if (anyAutomaton == null) {
+			anyAutomaton = new Automaton(); 
+			State s1 = new State();
+			s1.setAccept(true);			
+			anyAutomaton.setInitialState(s1);
+			// s1 --Any-> s1
+			Set<String> Any = new HashSet<String>(events);
+			addTransitions(s1, s1, Any);
+		}
+		return anyAutomaton;
+	}
+	
+	/**
+	 * @param expr an event or event set
+	 * @return isInSet[eventIndex] = true if the event is in the set
+	 */
+	private boolean[] getEventIndexSet(Constraint expr) {
+		boolean[] isInSet = new boolean[alphabet.size()];
+		for (String event : getEventSet(expr)) {
+			int eventIndex = alphabet.getIndex(event);
+			if (eventIndex >= 0)
+				isInSet[eventIndex] = true;
+		}
+		return isInSet;
+	}
+	
+	/**
+	 * Construct a DFA of two states s0 (initial) and s1, 
+	 * for sequencing operators on events/sets, which only remember whether the last event or any previous event is in a set. 
+	 * 
+	 * @param isAccept0 s0 is accepting
+	 * @param isAccept1 s1 is accepting
+	 * @param next0 next0[eventIndex] = the next state (0 or 1) from s0, or DEAD
+	 * @param next1 next1[eventIndex] = the next state (0 or 1) from s1, or DEAD
+	 * @return
+	 */
+	private Automaton buildTwoStateDFA(boolean isAccept0, boolean isAccept1, int[] next0, int[] next1) {
+		State[] states = {new State(), new State()};
+		states[0].setAccept(isAccept0);
+		states[1].setAccept(isAccept1);
+		int[][] next = {next0, next1};
+		for (int s = 0; s < 2; s++) {
+			for (int t = 0; t < 2; t++) {
+				boolean[] isToT = new boolean[alphabet.size()];
+				for (int event = 0; event < alphabet.size(); event++)
+					isToT[event] = next[s][event] == t;
+				addTransitions(states[s], states[t], isToT);
 			}
 		}
+		
+		Automaton automaton = new Automaton();
+		automaton.setInitialState(states[0]);
+		automaton.setDeterministic(true);
+		return automaton;
 	}
 	
 	// ALWAYS operator "_"
 	// Updated to support not only event/set but also constraint as operand 20210313
 	// _ B = NFA "e*Be*" when B equals to an automaton.
 	public Automaton ALWAYSOperator(Constraint leftExpr){
-		// anyAuto = "e*"
-		Automaton anyAuto = new Automaton(); 
-		State s1 = new State();
-		s1.setAccept(true);			
-		anyAuto.setInitialState(s1);
-		// s1 --Any-> s1
-		Set<String> Any = new HashSet<String>(events);
-		addTransitions(s1, s1, Any);
+		// e*Be* = the sequences containing an event of B
+		if (leftExpr.isEventOrSet() && isDirectConstruction) {
+			boolean[] B = getEventIndexSet(leftExpr);
+			int[] next0 = new int[alphabet.size()];
+			int[] next1 = new int[alphabet.size()];
+			for (int event = 0; event < alphabet.size(); event++) {
+				next0[event] = B[event] ? 1 : 0;
+				next1[event] = 1;
+			}
+			return buildTwoStateDFA(false, true, next0, next1);
+		}
+		
+		// anyAuto = "e*", shared by operators
+		Automaton anyAuto = getAnyAutomaton();
 		
 		// B is the left automaton
 		Automaton B = convertSequencingExprToAutomaton(leftExpr);
@@ -190,14 +328,22 @@ public class ConstraintToAutomaton {
 	public Automaton IROperator(Constraint leftExpr, Constraint rightExpr){
 		Automaton automaton = new Automaton();
 		
-		// anyAuto = "e*"
-		Automaton anyAuto = new Automaton(); 
-		State s1 = new State();
-		s1.setAccept(true);			
-		anyAuto.setInitialState(s1);
-		// s1 --Any-> s1
-		Set<String> Any = new HashSet<String>(events);
-		addTransitions(s1, s1, Any);
+		// every event of C is immediately preceded by an event of B, 
+		// s0 = the last event is not in B (or empty), s1 = the last event is in B
+		if (leftExpr.isEventOrSet() && rightExpr.isEventOrSet() && isDirectConstruction) {
+			boolean[] B = getEventIndexSet(leftExpr);
+			boolean[] C = getEventIndexSet(rightExpr);
+			int[] next0 = new int[alphabet.size()];
+			int[] next1 = new int[alphabet.size()];
+			for (int event = 0; event < alphabet.size(); event++) {
+				next0[event] = C[event] ? DEAD : (B[event] ? 1 : 0);
+				next1[event] = B[event] ? 1 : 0;
+			}
+			return buildTwoStateDFA(true, true, next0, next1);
+		}
+		
+		// anyAuto = "e*", shared by operators
+		Automaton anyAuto = getAnyAutomaton();
 		
 		// B is the left automaton
 		Automaton B = convertSequencingExprToAutomaton(leftExpr);
@@ -241,14 +387,22 @@ public class ConstraintToAutomaton {
 	public Automaton GROperator(Constraint leftExpr, Constraint rightExpr){
 		Automaton automaton = new Automaton();
 		
-		// anyAuto = "e*"
-		Automaton anyAuto = new Automaton(); 
-		State s1 = new State();
-		s1.setAccept(true);			
-		anyAuto.setInitialState(s1);
-		// s1 --Any-> s1
-		Set<String> Any = new HashSet<String>(events);
-		addTransitions(s1, s1, Any);
+		// every event of C is preceded by an event of B, 
+		// s0 = no event of B yet, s1 = an event of B is found
+		if (leftExpr.isEventOrSet() && rightExpr.isEventOrSet() && isDirectConstruction) {
+			boolean[] B = getEventIndexSet(leftExpr);
+			boolean[] C = getEventIndexSet(rightExpr);
+			int[] next0 = new int[alphabet.size()];
+			int[] next1 = new int[alphabet.size()];
+			for (int event = 0; event < alphabet.size(); event++) {
+				next0[event] = C[event] ? DEAD : (B[event] ? 1 : 0);
+				next1[event] = 1;
+			}
+			return buildTwoStateDFA(true, true, next0, next1);
+		}
+		
+		// anyAuto = "e*", shared by operators
+		Automaton anyAuto = getAnyAutomaton();
 		
 		// B is the left automaton
 		Automaton B = convertSequencingExprToAutomaton(leftExpr);
@@ -292,14 +446,22 @@ public class ConstraintToAutomaton {
 	public Automaton ILOperator(Constraint leftExpr, Constraint rightExpr){
 		Automaton automaton = new Automaton();
 		
-		// anyAuto = "e*"
-		Automaton anyAuto = new Automaton(); 
-		State s1 = new State();
-		s1.setAccept(true);			
-		anyAuto.setInitialState(s1);
-		// s1 --Any-> s1
-		Set<String> Any = new HashSet<String>(events);
-		addTransitions(s1, s1, Any);
+		// every event of B is immediately followed by an event of C, 
+		// s0 = nothing is pending, s1 = the last event is in B, which is pending for an event of C
+		if (leftExpr.isEventOrSet() && rightExpr.isEventOrSet() && isDirectConstruction) {
+			boolean[] B = getEventIndexSet(leftExpr);
+			boolean[] C = getEventIndexSet(rightExpr);
+			int[] next0 = new int[alphabet.size()];
+			int[] next1 = new int[alphabet.size()];
+			for (int event = 0; event < alphabet.size(); event++) {
+				next0[event] = B[event] ? 1 : 0;
+				next1[event] = !C[event] ? DEAD : (B[event] ? 1 : 0);
+			}
+			return buildTwoStateDFA(true, false, next0, next1);
+		}
+		
+		// anyAuto = "e*", shared by operators
+		Automaton anyAuto = getAnyAutomaton();
 		
 		// B is the left automaton
 		Automaton B = convertSequencingExprToAutomaton(leftExpr);
@@ -343,14 +505,22 @@ public class ConstraintToAutomaton {
 	public Automaton GLOperator(Constraint leftExpr, Constraint rightExpr){
 		Automaton automaton = new Automaton();
 		
-		// anyAuto = "e*"
-		Automaton anyAuto = new Automaton(); 
-		State s1 = new State();
-		s1.setAccept(true);			
-		anyAuto.setInitialState(s1);
-		// s1 --Any-> s1
-		Set<String> Any = new HashSet<String>(events);
-		addTransitions(s1, s1, Any);
+		// every event of B is followed by an event of C, 
+		// s0 = nothing is pending, s1 = an event of B is pending for an event of C after it
+		if (leftExpr.isEventOrSet() && rightExpr.isEventOrSet() && isDirectConstruction) {
+			boolean[] B = getEventIndexSet(leftExpr);
+			boolean[] C = getEventIndexSet(rightExpr);
+			int[] next0 = new int[alphabet.size()];
+			int[] next1 = new int[alphabet.size()];
+			for (int event = 0; event < alphabet.size(); event++) {
+				next0[event] = B[event] ? 1 : 0;
+				next1[event] = C[event] && !B[event] ? 0 : 1;
+			}
+			return buildTwoStateDFA(true, false, next0, next1);
+		}
+		
+		// anyAuto = "e*", shared by operators
+		Automaton anyAuto = getAnyAutomaton();
 		
 		// B is the left automaton
 		Automaton B = convertSequencingExprToAutomaton(leftExpr);
@@ -394,14 +564,22 @@ public class ConstraintToAutomaton {
 	public Automaton INOperator(Constraint leftExpr, Constraint rightExpr){
 		Automaton automaton = new Automaton();
 		
-		// anyAuto = "e*"
-		Automaton anyAuto = new Automaton(); 
-		State s1 = new State();
-		s1.setAccept(true);			
-		anyAuto.setInitialState(s1);
-		// s1 --Any-> s1
-		Set<String> Any = new HashSet<String>(events);
-		addTransitions(s1, s1, Any);
+		// no event of B is immediately followed by an event of C, 
+		// s0 = the last event is not in B (or empty), s1 = the last event is in B
+		if (leftExpr.isEventOrSet() && rightExpr.isEventOrSet() && isDirectConstruction) {
+			boolean[] B = getEventIndexSet(leftExpr);
+			boolean[] C = getEventIndexSet(rightExpr);
+			int[] next0 = new int[alphabet.size()];
+			int[] next1 = new int[alphabet.size()];
+			for (int event = 0; event < alphabet.size(); event++) {
+				next0[event] = B[event] ? 1 : 0;
+				next1[event] = C[event] ? DEAD : (B[event] ? 1 : 0);
+			}
+			return buildTwoStateDFA(true, true, next0, next1);
+		}
+		
+		// anyAuto = "e*", shared by operators
+		Automaton anyAuto = getAnyAutomaton();
 		
 		// B is the left automaton
 		Automaton B = convertSequencingExprToAutomaton(leftExpr);
@@ -445,14 +623,22 @@ public class ConstraintToAutomaton {
 	public Automaton GNOperator(Constraint leftExpr, Constraint rightExpr){
 		Automaton automaton = new Automaton();
 		
-		// anyAuto = "e*"
-		Automaton anyAuto = new Automaton(); 
-		State s1 = new State();
-		s1.setAccept(true);			
-		anyAuto.setInitialState(s1);
-		// s1 --Any-> s1
-		Set<String> Any = new HashSet<String>(events);
-		addTransitions(s1, s1, Any);
+		// no event of B is followed by an event of C, 
+		// s0 = no event of B yet, s1 = an event of B is found
+		if (leftExpr.isEventOrSet() && rightExpr.isEventOrSet() && isDirectConstruction) {
+			boolean[] B = getEventIndexSet(leftExpr);
+			boolean[] C = getEventIndexSet(rightExpr);
+			int[] next0 = new int[alphabet.size()];
+			int[] next1 = new int[alphabet.size()];
+			for (int event = 0; event < alphabet.size(); event++) {
+				next0[event] = B[event] ? 1 : 0;
+				next1[event] = C[event] ? DEAD : 1;
+			}
+			return buildTwoStateDFA(true, true, next0, next1);
+		}
+		
+		// anyAuto = "e*", shared by operators
+		Automaton anyAuto = getAnyAutomaton();
 		
 		// B is the left automaton
 		Automaton B = convertSequencingExprToAutomaton(leftExpr);
@@ -495,9 +681,26 @@ public class ConstraintToAutomaton {
 	 * 
 	 * Notice that Nesting Feature allows Operands to be not only event/set but also constraint. 20210313
 	 * 
+	 * Each distinct subexpression (by its canonical text) is compiled and minimized only once by this convertor, 
+	 * and a clone of its automaton is returned, since operations such as minimize() modify the automaton itself.
+	 * 
 	 * @param sequencingExpr  a sequencing expression which may have constraints as left or right operand.
 	 */
 	public Automaton convertSequencingExprToAutomaton(Constraint sequencingExpr){
+		String key = sequencingExpr.canonicalText();
+		Automaton automaton = mapSubexprsToAutomata.get(key);
+		if (automaton != null)
+			hitsOfSubexprs++;
+		else {
+			automaton = compileSequencingExpr(sequencingExpr);
+			mapSubexprsToAutomata.put(key, automaton);
+		}
+		
+		return automaton.clone();
+	}
+	
+	// convert one sequencing expression into a minimized Automaton, where operands are converted with memo
+	private Automaton compileSequencingExpr(Constraint sequencingExpr){
 		// If sequencingExpr is a single event or an event set,
 		// then create events-corresponding automaton and return it.
 		if (sequencingExpr.isEventOrSet()) {
@@ -670,6 +873,36 @@ public class ConstraintToAutomaton {
 		return a;
 	}
 	
+	/**
+	 * @param isDirectConstruction true (by default) to construct sequencing operators on events/sets as DFAs directly, 
+	 * or false to translate them by the general path as nested operands
+	 */
+	public void setDirectConstruction(boolean isDirectConstruction) {
+		this.isDirectConstruction = isDirectConstruction;
+		mapSubexprsToAutomata.clear();
+	}
+	
+	/**
+	 * @return the number of distinct subexpressions which are compiled
+	 */
+	public int getNumberOfCompiledSubexprs() {
+		return mapSubexprsToAutomata.size();
+	}
+	
+	/**
+	 * @return the number of subexpressions whose automata are reused instead of compiled again
+	 */
+	public int getHitsOfSubexprs() {
+		return hitsOfSubexprs;
+	}
+	
+	/**
+	 * @return the alphabet of events
+	 */
+	public EventAlphabet getAlphabet() {
+		return alphabet;
+	}
+	
 	private void debugPrintln(String str)
 	{
 		if (isDebugMode)
@@ -0,0 +1,39 @@
+package sequencingConstraints;
+
+/**
+ * a deterministic automaton over event indices, which is stepped by SequenceCursor one event at a time.
+ * A state is a non-negative integer, and DEAD (-1) means there is no transition.
+ *
+ * @author Feng Duan
+ *
+ */
+public interface EventAutomaton {
+	public int getInitialState();
+
+	/**
+	 * @param state a live state
+	 * @param event event index
+	 * @return the next state, or DEAD
+	 */
+	public int step(int state, int event);
+
+	public boolean isAccept(int state);
+
+	/**
+	 * @return the number of states, which are numbered from 0 (materialized so far, if states are created on the fly)
+	 */
+	public int getNumberOfStates();
+
+	public int getAlphabetSize();
+
+	/**
+	 * @return the number of classes of events with the same transitions from every state
+	 */
+	public int getNumberOfClasses();
+
+	/**
+	 * @param event event index
+	 * @return the class index of the event, where classes are numbered in the order of their first events
+	 */
+	public int getEventClass(int event);
+}
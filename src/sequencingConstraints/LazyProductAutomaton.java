@@ -0,0 +1,252 @@
+package sequencingConstraints;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * the product of the compiled automata of several constraints (the conjuncts of "&&"),
+ * whose states are materialized on the fly, instead of intersecting and minimizing all automata eagerly.
+ *
+ * A product state is the tuple of component states, and it is numbered when it is reached for the first time,
+ * from the initial state 0. Transitions are cached once they are stepped, in a table over classes of events:
+ * events in the same class of every component are in the same class of the product, as in CompiledAutomaton,
+ * so that the table grows with the number of classes instead of the alphabet.
+ * Since only materialized states are known, the distance from a product state to an accepting state is bounded below
+ * by the max of the distances of its component states, which is exact for a single component.
+ * All public methods are synchronized, so that the product can be shared by parallel evaluations.
+ *
+ * @author Feng Duan
+ *
+ */
+public class LazyProductAutomaton implements EventAutomaton {
+	public static final int DEAD = CompiledAutomaton.DEAD;
+	public static final int UNREACHABLE = CompiledAutomaton.UNREACHABLE;
+	private static final int UNKNOWN = -2; // transition not stepped yet
+
+	private CompiledAutomaton[] components;
+	private int numberOfComponents;
+	private int alphabetSize;
+	private int numberOfClasses;
+	private int[] classOfEvent; // class index of every event, numbered in the order of their first events
+
+	private int numberOfStates = 0;
+	private int[] tuples; // component states of product state s = tuples[s * numberOfComponents .. (s + 1) * numberOfComponents)
+	private int[] transitions; // transitions[s * numberOfClasses + classOfEvent[event]] = next product state, DEAD, or UNKNOWN
+	private boolean[] accepts;
+	private int[] distanceLowerBounds;
+	private int[] extensionDistanceLowerBounds;
+	private int[] failedRemainingLengths; // no non-empty extension of at most this length is accepted, -1 if unknown
+
+	private Map<Tuple, Integer> mapTuplesToStates = new HashMap<Tuple, Integer>();
+
+	/**
+	 * @param components compiled automata over the same events
+	 */
+	public LazyProductAutomaton(CompiledAutomaton[] components) {
+		if (components.length == 0)
+			throw new IllegalArgumentException("Product of no automaton!");
+
+		this.components = components;
+		numberOfComponents = components.length;
+		alphabetSize = components[0].getAlphabetSize();
+		for (CompiledAutomaton component : components) {
+			if (component.getAlphabetSize() != alphabetSize)
+				throw new IllegalArgumentException("Automata of product should be over the same events!");
+		}
+
+		// the class of an event is numbered by the tuple of its classes in components
+		classOfEvent = new int[alphabetSize];
+		Map<Tuple, Integer> mapClassesToProductClasses = new HashMap<Tuple, Integer>();
+		for (int event = 0; event < alphabetSize; event++) {
+			int[] classes = new int[numberOfComponents];
+			for (int c = 0; c < numberOfComponents; c++)
+				classes[c] = components[c].getEventClass(event);
+
+			Tuple key = new Tuple(classes);
+			Integer k = mapClassesToProductClasses.get(key);
+			if (k == null) {
+				k = mapClassesToProductClasses.size();
+				mapClassesToProductClasses.put(key, k);
+			}
+			classOfEvent[event] = k;
+		}
+		numberOfClasses = mapClassesToProductClasses.size();
+
+		int capacity = 16;
+		tuples = new int[capacity * numberOfComponents];
+		transitions = new int[capacity * numberOfClasses];
+		accepts = new boolean[capacity];
+		distanceLowerBounds = new int[capacity];
+		extensionDistanceLowerBounds = new int[capacity];
+		failedRemainingLengths = new int[capacity];
+
+		int[] initialTuple = new int[numberOfComponents];
+		for (int c = 0; c < numberOfComponents; c++)
+			initialTuple[c] = components[c].getInitialState();
+		getOrCreateState(initialTuple);
+	}
+
+	private int getOrCreateState(int[] tuple) {
+		Tuple key = new Tuple(tuple);
+		Integer state = mapTuplesToStates.get(key);
+		if (state != null)
+			return state;
+
+		if (numberOfStates == accepts.length) {
+			int capacity = accepts.length * 2;
+			tuples = Arrays.copyOf(tuples, capacity * numberOfComponents);
+			transitions = Arrays.copyOf(transitions, capacity * numberOfClasses);
+			accepts = Arrays.copyOf(accepts, capacity);
+			distanceLowerBounds = Arrays.copyOf(distanceLowerBounds, capacity);
+			extensionDistanceLowerBounds = Arrays.copyOf(extensionDistanceLowerBounds, capacity);
+			failedRemainingLengths = Arrays.copyOf(failedRemainingLengths, capacity);
+		}
+
+		int s = numberOfStates++;
+		System.arraycopy(tuple, 0, tuples, s * numberOfComponents, numberOfComponents);
+		Arrays.fill(transitions, s * numberOfClasses, (s + 1) * numberOfClasses, UNKNOWN);
+
+		boolean isAccept = true;
+		int distance = 0;
+		int extensionDistance = 0;
+		for (int c = 0; c < numberOfComponents; c++) {
+			isAccept &= components[c].isAccept(tuple[c]);
+			distance = Math.max(distance, components[c].getDistanceToAccept(tuple[c]));
+			extensionDistance = Math.max(extensionDistance, components[c].getExtensionDistanceToAccept(tuple[c]));
+		}
+		accepts[s] = isAccept;
+		distanceLowerBounds[s] = distance;
+		extensionDistanceLowerBounds[s] = extensionDistance;
+		failedRemainingLengths[s] = -1;
+
+		mapTuplesToStates.put(key, s);
+		return s;
+	}
+
+	public int getInitialState() {
+		return 0;
+	}
+
+	public synchronized int step(int state, int event) {
+		int k = classOfEvent[event];
+		int next = transitions[state * numberOfClasses + k];
+		if (next != UNKNOWN)
+			return next;
+
+		int[] tuple = new int[numberOfComponents];
+		next = 0;
+		for (int c = 0; c < numberOfComponents; c++) {
+			tuple[c] = components[c].step(tuples[state * numberOfComponents + c], event);
+			if (tuple[c] == DEAD) {
+				next = DEAD;
+				break;
+			}
+		}
+		if (next != DEAD)
+			next = getOrCreateState(tuple);
+
+		// the arrays may be reallocated when the next state is created
+		transitions[state * numberOfClasses + k] = next;
+		return next;
+	}
+
+	/**
+	 * @param sequence event indices
+	 * @param length number of events in sequence from the beginning
+	 * @return the state that sequence arrives from the initial state, or DEAD
+	 */
+	public synchronized int run(int[] sequence, int length) {
+		int state = 0;
+		for (int i = 0; i < length && state != DEAD; i++)
+			state = step(state, sequence[i]);
+		return state;
+	}
+
+	public synchronized boolean isAccept(int state) {
+		return state != DEAD && accepts[state];
+	}
+
+	/**
+	 * @param state a live state
+	 * @return a lower bound of the minimum number of events to reach an accepting state, or UNREACHABLE
+	 */
+	public synchronized int getDistanceLowerBound(int state) {
+		return distanceLowerBounds[state];
+	}
+
+	/**
+	 * @param state a live state
+	 * @return a lower bound of the minimum number of events (at least one) to reach an accepting state, or UNREACHABLE
+	 */
+	public synchronized int getExtensionDistanceLowerBound(int state) {
+		return extensionDistanceLowerBounds[state];
+	}
+
+	/**
+	 * @param state a live state
+	 * @return the max length such that no non-empty extension of at most this length from the state is accepted, or -1 if unknown
+	 */
+	public synchronized int getFailedRemainingLength(int state) {
+		return failedRemainingLengths[state];
+	}
+
+	/**
+	 * @param state a live state
+	 * @param remainingLength no non-empty extension of at most this length from the state is accepted, ignoring repetitions
+	 */
+	public synchronized void setFailedRemainingLength(int state, int remainingLength) {
+		if (remainingLength > failedRemainingLengths[state])
+			failedRemainingLengths[state] = remainingLength;
+	}
+
+	/**
+	 * @return the number of product states materialized so far
+	 */
+	public synchronized int getNumberOfStates() {
+		return numberOfStates;
+	}
+
+	public int getNumberOfComponents() {
+		return numberOfComponents;
+	}
+
+	public CompiledAutomaton getComponent(int index) {
+		return components[index];
+	}
+
+	public int getAlphabetSize() {
+		return alphabetSize;
+	}
+
+	public int getNumberOfClasses() {
+		return numberOfClasses;
+	}
+
+	public int getEventClass(int event) {
+		return classOfEvent[event];
+	}
+
+	// component states of a product state
+	private static class Tuple {
+		private final int[] states;
+		private final int hash;
+
+		Tuple(int[] states) {
+			this.states = states;
+			hash = Arrays.hashCode(states);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Tuple))
+				return false;
+			return Arrays.equals(states, ((Tuple) obj).states);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
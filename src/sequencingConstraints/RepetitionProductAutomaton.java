@@ -0,0 +1,248 @@
+package sequencingConstraints;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * product of the compiled constraint automaton with bounded repetition counters of events,
+ * so that both validity and extensibility under Maximum Repetition and Maximum Length
+ * become lookups after stepping a prefix.
+ *
+ * Events with identical transitions from every state (e.g., events not mentioned in constraints)
+ * are interchangeable, thus their counters are collapsed into a histogram per class:
+ * the number of events in the class that occur 0, 1, ..., maxRepetition times.
+ * A product state is (automaton state, histograms), and its transitions are labeled by
+ * (class, current count of the stepped event), instead of the event itself.
+ *
+ * Product states are materialized when they are first reached, and the extensibility of each
+ * product state is computed only once. Public methods are synchronized, since materialization modifies the tables.
+ *
+ * @author Feng Duan
+ *
+ */
+public class RepetitionProductAutomaton {
+	public static final int DEAD = -1;
+
+	private static final int UNKNOWN = -2; // transition not yet materialized
+	private static final byte EXTENDABLE = 1;
+	private static final byte NOT_EXTENDABLE = 2;
+
+	private CompiledAutomaton automaton;
+	private int maxRepetition;
+	private int maxLength;
+
+	private int numberOfClasses;
+	private int[] classOfEvent; // class index of every event
+	private int[] representativeOfClass; // one event of every class
+	private int numberOfLabels; // numberOfClasses * maxRepetition
+
+	// materialized product states, key[0] = automaton state, key[1 + k*(maxRepetition+1) + c] = histogram of class k
+	private int numberOfStates = 0;
+	private int[][] keys = new int[16][];
+	private int[] lengths = new int[16];
+	private int[] transitions = new int[0];
+	private byte[] extendability = new byte[16];
+	private Map<Key, Integer> mapKeysToStates = new HashMap<Key, Integer>();
+
+	public RepetitionProductAutomaton(CompiledAutomaton compiledAutomaton, int maxRepetition, int maxLength) {
+		automaton = compiledAutomaton;
+		this.maxRepetition = maxRepetition;
+		this.maxLength = maxLength;
+
+		classifyEvents();
+
+		// the initial product state: initial automaton state, and every event occurs 0 times
+		int[] key = new int[1 + numberOfClasses * (maxRepetition + 1)];
+		key[0] = automaton.getInitialState();
+		int[] sizeOfClass = new int[numberOfClasses];
+		for (int event = 0; event < classOfEvent.length; event++)
+			sizeOfClass[classOfEvent[event]]++;
+		for (int k = 0; k < numberOfClasses; k++)
+			key[1 + k * (maxRepetition + 1)] = sizeOfClass[k];
+		intern(key, 0);
+	}
+
+	// events with the same column in transition table are already in one class of the compiled automaton
+	private void classifyEvents() {
+		int alphabetSize = automaton.getAlphabetSize();
+		numberOfClasses = automaton.getNumberOfClasses();
+
+		classOfEvent = new int[alphabetSize];
+		representativeOfClass = new int[numberOfClasses];
+		Arrays.fill(representativeOfClass, -1);
+		for (int event = 0; event < alphabetSize; event++) {
+			int k = automaton.getEventClass(event);
+			if (representativeOfClass[k] < 0)
+				representativeOfClass[k] = event;
+			classOfEvent[event] = k;
+		}
+
+		numberOfLabels = numberOfClasses * maxRepetition;
+	}
+
+	private int intern(int[] key, int length) {
+		Key wrappedKey = new Key(key);
+		Integer state = mapKeysToStates.get(wrappedKey);
+		if (state != null)
+			return state;
+
+		state = numberOfStates++;
+		if (state == keys.length) {
+			keys = Arrays.copyOf(keys, state * 2);
+			lengths = Arrays.copyOf(lengths, state * 2);
+			extendability = Arrays.copyOf(extendability, state * 2);
+		}
+		if ((long) numberOfStates * numberOfLabels > transitions.length) {
+			int oldLength = transitions.length;
+			transitions = Arrays.copyOf(transitions, keys.length * numberOfLabels);
+			Arrays.fill(transitions, oldLength, transitions.length, UNKNOWN);
+		}
+
+		keys[state] = key;
+		lengths[state] = length;
+		mapKeysToStates.put(wrappedKey, state);
+		return state;
+	}
+
+	public int getInitialState() {
+		return 0;
+	}
+
+	/**
+	 * @param state a live product state
+	 * @param event event index
+	 * @param count the number of times the event occurs before this step
+	 * @return the next product state, or DEAD
+	 */
+	public synchronized int step(int state, int event, int count) {
+		if (count >= maxRepetition)
+			return DEAD;
+
+		int k = classOfEvent[event];
+		int index = state * numberOfLabels + k * maxRepetition + count;
+		int next = transitions[index];
+		if (next == UNKNOWN) {
+			next = materialize(state, k, count);
+			transitions[index] = next;
+		}
+		return next;
+	}
+
+	private int materialize(int state, int k, int count) {
+		int[] key = keys[state];
+		int offset = 1 + k * (maxRepetition + 1);
+		if (lengths[state] >= maxLength || key[offset + count] == 0)
+			return DEAD;
+
+		int nextAutomatonState = automaton.step(key[0], representativeOfClass[k]);
+		if (nextAutomatonState == CompiledAutomaton.DEAD)
+			return DEAD;
+
+		int[] nextKey = key.clone();
+		nextKey[0] = nextAutomatonState;
+		nextKey[offset + count]--;
+		nextKey[offset + count + 1]++;
+		return intern(nextKey, lengths[state] + 1);
+	}
+
+	/**
+	 * @param sequence event indices
+	 * @param length number of events in sequence from the beginning
+	 * @return the product state that sequence arrives, or DEAD
+	 */
+	public synchronized int run(int[] sequence, int length) {
+		int[] eventCounter = new int[classOfEvent.length];
+		int state = getInitialState();
+		for (int i = 0; i < length; i++) {
+			int event = sequence[i];
+			state = step(state, event, eventCounter[event]++);
+			if (state == DEAD)
+				return DEAD;
+		}
+		return state;
+	}
+
+	/**
+	 * @param state a product state or DEAD
+	 * @return true if a sequence arriving this state is valid
+	 */
+	public synchronized boolean isAccept(int state) {
+		return state != DEAD && automaton.isAccept(keys[state][0]);
+	}
+
+	/**
+	 * @param state a product state or DEAD
+	 * @return true if a sequence arriving this state can be extended by at least one event into a valid sequence
+	 */
+	public synchronized boolean isExtendable(int state) {
+		if (state == DEAD)
+			return false;
+
+		if (extendability[state] == 0) {
+			// new product states may be materialized in computation, which reallocates the arrays
+			boolean isExtendable = computeExtendability(state);
+			extendability[state] = isExtendable ? EXTENDABLE : NOT_EXTENDABLE;
+		}
+		return extendability[state] == EXTENDABLE;
+	}
+
+	private boolean computeExtendability(int state) {
+		int remainingLength = maxLength - lengths[state];
+		int automatonState = keys[state][0];
+		if (automaton.getExtensionDistanceToAccept(automatonState) > remainingLength)
+			return false;
+
+		int[] key = keys[state];
+		for (int k = 0; k < numberOfClasses; k++) {
+			int offset = 1 + k * (maxRepetition + 1);
+			for (int count = 0; count < maxRepetition; count++) {
+				if (key[offset + count] == 0)
+					continue;
+
+				int next = step(state, representativeOfClass[k], count);
+				if (next == DEAD || automaton.getDistanceToAccept(keys[next][0]) > remainingLength - 1)
+					continue;
+
+				if (isAccept(next) || isExtendable(next))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the number of materialized product states
+	 */
+	public synchronized int getNumberOfStates() {
+		return numberOfStates;
+	}
+
+	/**
+	 * @return the number of classes of interchangeable events
+	 */
+	public int getNumberOfClasses() {
+		return numberOfClasses;
+	}
+
+	// int[] as a hash key
+	private static class Key {
+		private final int[] values;
+		private final int hash;
+
+		Key(int[] values) {
+			this.values = values;
+			hash = Arrays.hashCode(values);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Key && Arrays.equals(values, ((Key) obj).values);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
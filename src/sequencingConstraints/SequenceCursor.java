@@ -0,0 +1,211 @@
+package sequencingConstraints;
+
+import java.util.Arrays;
+
+/**
+ * the state of a sequence of events in the solver: the state of compiled automaton (or lazy product automaton),
+ * the length, and the repetition of every event,
+ * so that a sequence can be extended and checked one event at a time,
+ * instead of running the automaton from the initial state again.
+ *
+ * A SequenceCursor is immutable, appending an event creates a new cursor.
+ * The repetitions of events are kept in a persistent trie of 32-way nodes over event indices, shared with the previous cursor,
+ * where appending an event copies only the nodes on the path to its repetition (a single node for at most 32 events),
+ * thus appending and looking up a repetition cost neither the length of sequence nor the number of events.
+ * A cursor is dead once the sequence can never be valid,
+ * i.e., it has no transition in automaton, or exceeds the Maximum Length or the Maximum Repetition.
+ *
+ * @author Feng Duan
+ *
+ */
+public class SequenceCursor {
+	private final SolverByAutomaton solver;
+	private final EventAutomaton automaton; // compiled automaton, or lazy product automaton in lazy product mode
+	private final RepetitionProductAutomaton productAutomaton; // null if repetition product mode is off
+
+	private final int state; // state of compiled automaton, or DEAD
+	private final int productState; // state of product automaton, or DEAD if repetition product mode is off
+	private final int length;
+	
+	private static final int BITS_PER_LEVEL = 5;
+	private static final int WIDTH = 1 << BITS_PER_LEVEL;
+	private static final int MASK = WIDTH - 1;
+	
+	private final int levels; // number of levels of the trie, 1 for at most 32 events
+	private final Object counts; // root of the trie: int[] at the last level, Object[] above it, null if all repetitions are 0
+	
+	private volatile int[] eventCounts; // repeated events and their repetitions, computed at the first use
+
+	// cursor of empty sequence
+	SequenceCursor(SolverByAutomaton solver) {
+		this.solver = solver;
+		automaton = solver.getEventAutomaton();
+		productAutomaton = solver.getProductAutomaton();
+
+		state = automaton.getInitialState();
+		productState = productAutomaton == null ? RepetitionProductAutomaton.DEAD : productAutomaton.getInitialState();
+		length = 0;
+		
+		int levels = 1;
+		while (levels * BITS_PER_LEVEL < 31 && automaton.getAlphabetSize() > 1 << (levels * BITS_PER_LEVEL))
+			levels++;
+		this.levels = levels;
+		counts = null;
+	}
+
+	private SequenceCursor(SequenceCursor previous, int event) {
+		solver = previous.solver;
+		automaton = previous.automaton;
+		productAutomaton = previous.productAutomaton;
+
+		length = previous.length + 1;
+		levels = previous.levels;
+		int count = previous.getCount(event);
+		counts = withCount(previous.counts, levels - 1, event, count + 1);
+
+		if (previous.isDead() || length > solver.getMAX_LENGTH() || count >= solver.getMAX_REPETITION()) {
+			state = CompiledAutomaton.DEAD;
+			productState = RepetitionProductAutomaton.DEAD;
+		}
+		else {
+			state = automaton.step(previous.state, event);
+			if (productAutomaton == null || state == CompiledAutomaton.DEAD)
+				productState = RepetitionProductAutomaton.DEAD;
+			else
+				productState = productAutomaton.step(previous.productState, event, count);
+		}
+	}
+
+	// a copy of the node at the level, with the repetition of the event set, sharing the other children
+	private static Object withCount(Object node, int level, int event, int count) {
+		if (level == 0) {
+			int[] leaf = node == null ? new int[WIDTH] : ((int[]) node).clone();
+			leaf[event & MASK] = count;
+			return leaf;
+		}
+		
+		Object[] inner = node == null ? new Object[WIDTH] : ((Object[]) node).clone();
+		int child = (event >>> (level * BITS_PER_LEVEL)) & MASK;
+		inner[child] = withCount(inner[child], level - 1, event, count);
+		return inner;
+	}
+
+	/**
+	 * @param event event index
+	 * @return a new cursor of the sequence with the event appended
+	 */
+	public SequenceCursor append(int event) {
+		return new SequenceCursor(this, event);
+	}
+
+	/**
+	 * @param sequence event indices
+	 * @param length number of events in sequence from the beginning
+	 * @return a new cursor of the sequence with the events appended
+	 */
+	public SequenceCursor append(int[] sequence, int length) {
+		SequenceCursor cursor = this;
+		for (int i = 0; i < length; i++)
+			cursor = cursor.append(sequence[i]);
+		return cursor;
+	}
+
+	public boolean isDead() {
+		return state == CompiledAutomaton.DEAD;
+	}
+
+	/**
+	 * @return true if the sequence satisfies the constraint, the Maximum Length and the Maximum Repetition
+	 */
+	public boolean isValid() {
+		return !isDead() && automaton.isAccept(state);
+	}
+
+	/**
+	 * @return true if the sequence can be extended by at least one event into a valid sequence
+	 */
+	public boolean isExtendable() {
+		return solver.isExtendable(this);
+	}
+
+	/**
+	 * @return the state of compiled automaton, or CompiledAutomaton.DEAD
+	 */
+	public int getState() {
+		return state;
+	}
+
+	/**
+	 * @return the state of product automaton, or RepetitionProductAutomaton.DEAD
+	 */
+	public int getProductState() {
+		return productState;
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * @param event event index
+	 * @return the repetition of the event in the sequence
+	 */
+	public int getCount(int event) {
+		Object node = counts;
+		for (int level = levels - 1; level > 0 && node != null; level--)
+			node = ((Object[]) node)[(event >>> (level * BITS_PER_LEVEL)) & MASK];
+		return node == null ? 0 : ((int[]) node)[event & MASK];
+	}
+
+	/**
+	 * @return a new array of the repetition of every event
+	 */
+	public int[] getEventCounter() {
+		int[] eventCounter = new int[automaton.getAlphabetSize()];
+		int[] repeatedEventCounts = getEventCounts();
+		for (int i = 0; i < repeatedEventCounts.length; i += 2)
+			eventCounter[repeatedEventCounts[i]] = repeatedEventCounts[i + 1];
+		return eventCounter;
+	}
+
+	/**
+	 * The repetitions are in the order of event indices, so that two cursors have equal arrays 
+	 * if and only if they have the same repetition of every event. 
+	 * The array is computed at the first call, and shared by the following calls.
+	 * 
+	 * @return {event, repetition, event, repetition, ...} of the events occurring in the sequence, which must not be modified
+	 */
+	public int[] getEventCounts() {
+		int[] result = eventCounts;
+		if (result == null) {
+			// at most length events occur, and the trie is visited in the order of event indices
+			int[] repeatedEventCounts = new int[2 * length];
+			int size = collectCounts(counts, levels - 1, 0, repeatedEventCounts, 0);
+			result = Arrays.copyOf(repeatedEventCounts, size);
+			eventCounts = result;
+		}
+		return result;
+	}
+
+	// collect {event, repetition} of the non-zero repetitions under the node, whose first event is firstEvent
+	private static int collectCounts(Object node, int level, int firstEvent, int[] result, int size) {
+		if (node == null)
+			return size;
+		
+		if (level == 0) {
+			int[] leaf = (int[]) node;
+			for (int i = 0; i < WIDTH; i++) {
+				if (leaf[i] > 0) {
+					result[size++] = firstEvent + i;
+					result[size++] = leaf[i];
+				}
+			}
+			return size;
+		}
+		
+		Object[] inner = (Object[]) node;
+		for (int i = 0; i < WIDTH; i++)
+			size = collectCounts(inner[i], level - 1, firstEvent + (i << (level * BITS_PER_LEVEL)), result, size);
+		return size;
+	}
+}
@@ -1,5 +1,6 @@
 package sequencingConstraints;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
@@ -11,6 +12,8 @@ import dk.brics.automaton.Automaton;
 import sequencingConstraints.Constraint;
 import sequencingConstraints.TypeInfo;
 import sequencingConstraints.constraintParser.ConstraintParser;
+import util.Constants;
+import util.EventAlphabet;
 
 /**
  * sequencing constraint solver for CCSequence (Consecutive Complete Sequence) of events,
@@ -24,6 +27,8 @@ public class SolverByAutomaton {
 	
 	private List<String> eventsList;
 	
+	private EventAlphabet alphabet; // events interned as indices
+	
 	private Constraint constraint;
 	
 	private int MAX_REPETITION; // max repetition of every event
@@ -32,11 +37,38 @@ public class SolverByAutomaton {
 	
 	private ConstraintToAutomaton convertor; // convert constraint to automaton
 	
-	private Automaton automaton; // the automaton should be generated before first using 
+	private Automaton automaton; // the automaton should be generated before first using, or restored from compiledAutomaton if it is stored
+	
+	private volatile CompiledAutomaton compiledAutomaton; // the minimized automaton compiled into a transition table, at the first use
+	
+	private CompiledAutomatonStore store; // compiled automata are loaded from and saved into the store, null for no store
+	
+	private LazyProductAutomaton lazyProductAutomaton; // product of the automata of conjuncts, null if lazy product mode is off
+	
+	private RepetitionProductAutomaton productAutomaton; // product with repetition counters, null if the mode is off
 	
 	public SolverByAutomaton(boolean isSolverDebugMode, 
 			List<String> events, Constraint cons, int maxRepetition, int maxLength) {
-		eventsList = events;
+		this(isSolverDebugMode, new EventAlphabet(events), cons, maxRepetition, maxLength);
+	}
+	
+	public SolverByAutomaton(boolean isSolverDebugMode, 
+			EventAlphabet events, Constraint cons, int maxRepetition, int maxLength) {
+		this(isSolverDebugMode, events, cons, maxRepetition, maxLength, null);
+	}
+	
+	/**
+	 * @param isSolverDebugMode
+	 * @param events
+	 * @param cons
+	 * @param maxRepetition
+	 * @param maxLength
+	 * @param store the compiled automaton is loaded from the store if it is stored, otherwise it is compiled and stored; null for no store
+	 */
+	public SolverByAutomaton(boolean isSolverDebugMode, 
+			EventAlphabet events, Constraint cons, int maxRepetition, int maxLength, CompiledAutomatonStore store) {
+		alphabet = events;
+		eventsList = alphabet.getEvents();
 		
 		constraint = cons;
 		
@@ -44,9 +76,37 @@ public class SolverByAutomaton {
 		
 		MAX_LENGTH = maxLength;
 		
-		convertor = new ConstraintToAutomaton(eventsList);
+		convertor = new ConstraintToAutomaton(alphabet);
 		convertor.setDebugMode(isSolverDebugMode);
-		automaton = convertor.convertSequencingExprToAutomaton(constraint);
+		
+		// the automaton of constraint is compiled at the first use, 
+		// so that it is never compiled as a whole in lazy product mode
+		this.store = store;
+	}
+	
+	// translate, complement and minimize only if the compiled automaton is not stored
+	private CompiledAutomaton compile(Constraint cons) {
+		String key = null;
+		if (store != null) {
+			key = CompiledAutomatonStore.getKey(cons, alphabet);
+			CompiledAutomaton storedAutomaton = store.get(key, alphabet.size());
+			if (storedAutomaton != null)
+				return storedAutomaton;
+		}
+		
+		Automaton consAutomaton = convertor.convertSequencingExprToAutomaton(cons);
+		if (cons == constraint)
+			automaton = consAutomaton;
+		CompiledAutomaton consCompiledAutomaton = new CompiledAutomaton(consAutomaton, convertor);
+		
+		if (store != null) {
+			try {
+				store.put(key, consCompiledAutomaton);
+			} catch (IOException e) {
+				throw new IllegalStateException("Compiled automaton can not be saved into " + store.getDirectory() + "!", e);
+			}
+		}
+		return consCompiledAutomaton;
 	}
 	
 	// get the left-most event set in sequencing expression
@@ -84,7 +144,22 @@ public class SolverByAutomaton {
 	}
 	
 	public boolean solveSequencingExpr(List<String> ccSeq, Constraint sequencingExpr){
-		return automaton.run(convertor.mappingSequenceToCharArray(ccSeq));
+		// walk the compiled transition table instead of the states of automaton
+		EventAutomaton eventAutomaton = getEventAutomaton();
+		int state = eventAutomaton.getInitialState();
+		for (String event : ccSeq){
+			int eventIndex = alphabet.getIndex(event);
+			if (eventIndex < 0){
+				convertor.mappingEventToChar(event); // report the unsupported event
+				return false;
+			}
+			
+			state = eventAutomaton.step(state, eventIndex);
+			if (state == CompiledAutomaton.DEAD)
+				return false;
+		}
+		
+		return eventAutomaton.isAccept(state);
 	}
 	
 	/**
@@ -125,6 +200,202 @@ public class SolverByAutomaton {
 		return solveSequencingExpr(ccSeq, cons);
 	}
 	
+	/**
+	 * Do validity check on a CCSequence of event indices, the same as solve(List<String> ccSeq).
+	 * 
+	 * @param ccSeq event indices interned by the alphabet
+	 * @param length number of events in ccSeq from the beginning
+	 * @return
+	 */
+	public boolean solve(int[] ccSeq, int length){
+		// Stop criterion as max length
+		if (length > MAX_LENGTH)
+			return false;
+		
+		// the product automaton also checks the Maximum Repetition while stepping
+		if (productAutomaton != null)
+			return productAutomaton.isAccept(productAutomaton.run(ccSeq, length));
+		
+		// Stop criterion as the Maximum Repetition of every event
+		if (!isValidOnRepetition(ccSeq, length))
+			return false;
+		
+		return run(ccSeq, length);
+	}
+	
+	/**
+	 * @return a cursor of the empty sequence, to be extended one event at a time
+	 */
+	public SequenceCursor newCursor(){
+		return new SequenceCursor(this);
+	}
+	
+	// count the repetition of every event by its index
+	public boolean isValidOnRepetition(int[] ccSeq, int length){
+		int[] eventCounter = new int[alphabet.size()];
+		for (int i=0; i<length; i++){
+			if (++eventCounter[ccSeq[i]] > MAX_REPETITION)
+				return false;
+		}
+		
+		return true;
+	}
+	
+	// walk the compiled transition table from its initial state by event indices
+	public boolean run(int[] ccSeq, int length){
+		if (lazyProductAutomaton != null)
+			return lazyProductAutomaton.isAccept(lazyProductAutomaton.run(ccSeq, length));
+		
+		return getCompiledAutomaton().accepts(ccSeq, length);
+	}
+	
+	/**
+	 * Check if a CISequence (Consecutive Input Sequence) of event indices is extendable, 
+	 * i.e., it can be extended by at least one event into a valid sequence.
+	 * 
+	 * The distance from every state to an accepting state is precomputed on the compiled automaton, 
+	 * so that it is decided by stepping the sequence and comparing the distance with the remaining length.
+	 * Only when the Maximum Repetition may be exceeded on the way, a depth-first search pruned by the distances is needed.
+	 * 
+	 * @param ciSeq event indices interned by the alphabet
+	 * @param length number of events in ciSeq from the beginning
+	 * @return
+	 */
+	public boolean isExtendable(int[] ciSeq, int length){
+		//  in extensibility check, seq can only reach maxLength - 1
+		if (length >= MAX_LENGTH)
+			return false;
+		
+		// extensibility of every product state is computed only once
+		if (productAutomaton != null)
+			return productAutomaton.isExtendable(productAutomaton.run(ciSeq, length));
+		
+		int[] eventCounter = new int[alphabet.size()];
+		for (int i=0; i<length; i++){
+			if (++eventCounter[ciSeq[i]] > MAX_REPETITION)
+				return false;
+		}
+		
+		int state = lazyProductAutomaton != null ? lazyProductAutomaton.run(ciSeq, length) : getCompiledAutomaton().run(ciSeq, length);
+		if (state == CompiledAutomaton.DEAD)
+			return false;
+		
+		return isExtendable(state, length, eventCounter);
+	}
+	
+	/**
+	 * Check if the sequence of a cursor is extendable, without stepping the sequence again.
+	 * 
+	 * @param cursor
+	 * @return
+	 */
+	public boolean isExtendable(SequenceCursor cursor){
+		if (cursor.isDead() || cursor.getLength() >= MAX_LENGTH)
+			return false;
+		
+		if (productAutomaton != null)
+			return productAutomaton.isExtendable(cursor.getProductState());
+		
+		Boolean isExtendable = isExtendableByDistance(cursor.getState(), cursor.getLength());
+		if (isExtendable != null)
+			return isExtendable;
+		
+		// the counter is only built when the repetitions are searched, and it is modified and restored in DFS, thus a copy is used
+		return isExtendableInSearch(cursor.getState(), MAX_LENGTH - cursor.getLength(), cursor.getEventCounter());
+	}
+	
+	// the sequence arrives a live state, within the Maximum Length and the Maximum Repetition
+	private boolean isExtendable(int state, int length, int[] eventCounter){
+		Boolean isExtendable = isExtendableByDistance(state, length);
+		if (isExtendable != null)
+			return isExtendable;
+		
+		return isExtendableInSearch(state, MAX_LENGTH - length, eventCounter);
+	}
+	
+	// decided by the distance to accept without the repetitions, or null if the repetitions are to be searched
+	private Boolean isExtendableByDistance(int state, int length){
+		int remainingLength = MAX_LENGTH - length;
+		if (lazyProductAutomaton != null) {
+			if (lazyProductAutomaton.getExtensionDistanceLowerBound(state) > remainingLength)
+				return false;
+			return null;
+		}
+		
+		if (compiledAutomaton.getExtensionDistanceToAccept(state) > remainingLength)
+			return false;
+		
+		// no event can exceed the Maximum Repetition within the Maximum Length 
+		if (MAX_REPETITION >= MAX_LENGTH)
+			return true;
+		
+		return null;
+	}
+	
+	private boolean isExtendableInSearch(int state, int remainingLength, int[] eventCounter){
+		if (lazyProductAutomaton != null)
+			return isExtendableInLazyProduct(state, remainingLength, eventCounter);
+		return isExtendableInDFS(state, remainingLength, eventCounter);
+	}
+	
+	// search a non-empty extension of at most remainingLength events to an accepting state, under the Maximum Repetition
+	private boolean isExtendableInDFS(int state, int remainingLength, int[] eventCounter){
+		for (int event=0; event<eventCounter.length; event++){
+			if (eventCounter[event] >= MAX_REPETITION)
+				continue;
+			
+			int nextState = compiledAutomaton.step(state, event);
+			if (nextState == CompiledAutomaton.DEAD || compiledAutomaton.getDistanceToAccept(nextState) > remainingLength - 1)
+				continue;
+			
+			if (compiledAutomaton.isAccept(nextState))
+				return true;
+			
+			eventCounter[event]++;
+			boolean isExtendable = isExtendableInDFS(nextState, remainingLength - 1, eventCounter);
+			eventCounter[event]--;
+			
+			if (isExtendable)
+				return true;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * search a non-empty extension in the lazy product, where distances are only lower bounds, 
+	 * thus the search is needed even if no event can exceed the Maximum Repetition, 
+	 * and in that case, the failed remaining lengths are memorized for product states.
+	 */
+	private boolean isExtendableInLazyProduct(int state, int remainingLength, int[] eventCounter){
+		boolean isRepetitionUnbounded = MAX_REPETITION >= MAX_LENGTH;
+		for (int event=0; event<eventCounter.length; event++){
+			if (eventCounter[event] >= MAX_REPETITION)
+				continue;
+			
+			int nextState = lazyProductAutomaton.step(state, event);
+			if (nextState == LazyProductAutomaton.DEAD || lazyProductAutomaton.getDistanceLowerBound(nextState) > remainingLength - 1)
+				continue;
+			
+			if (lazyProductAutomaton.isAccept(nextState))
+				return true;
+			
+			if (isRepetitionUnbounded && lazyProductAutomaton.getFailedRemainingLength(nextState) >= remainingLength - 1)
+				continue;
+			
+			eventCounter[event]++;
+			boolean isExtendable = isExtendableInLazyProduct(nextState, remainingLength - 1, eventCounter);
+			eventCounter[event]--;
+			
+			if (isExtendable)
+				return true;
+		}
+		
+		if (isRepetitionUnbounded)
+			lazyProductAutomaton.setFailedRemainingLength(state, remainingLength);
+		return false;
+	}
+	
 	private void debugPrintln(String str)
 	{
 		if (isDebugMode)
@@ -150,6 +421,7 @@ public class SolverByAutomaton {
 	 */
 	public void setMAX_REPETITION(int mAX_REPETITION) {
 		MAX_REPETITION = mAX_REPETITION;
+		rebuildProductAutomaton();
 	}
 
 	/**
@@ -164,15 +436,130 @@ public class SolverByAutomaton {
 	 */
 	public void setMAX_LENGTH(int mAX_LENGTH) {
 		MAX_LENGTH = mAX_LENGTH;
+		rebuildProductAutomaton();
+	}
+
+	/**
+	 * In repetition product mode, validity and extensibility are decided on the product of compiled automaton 
+	 * with bounded repetition counters of events, whose results are memorized for every product state.
+	 * 
+	 * @param isRepetitionProductMode
+	 */
+	public void setRepetitionProductMode(boolean isRepetitionProductMode) {
+		if (isRepetitionProductMode && lazyProductAutomaton != null)
+			throw new IllegalStateException("Repetition product mode is not supported in lazy product mode!");
+		
+		if (isRepetitionProductMode)
+			productAutomaton = new RepetitionProductAutomaton(getCompiledAutomaton(), MAX_REPETITION, MAX_LENGTH);
+		else
+			productAutomaton = null;
+	}
+	
+	public boolean isRepetitionProductMode() {
+		return productAutomaton != null;
+	}
+	
+	// the memorized product states are out of date once the bounds change
+	private void rebuildProductAutomaton() {
+		if (productAutomaton != null)
+			setRepetitionProductMode(true);
+	}
+
+	/**
+	 * In lazy product mode, the constraint is split into its top-level conjuncts of "&&", 
+	 * and each conjunct is compiled (or loaded from the store) separately. 
+	 * Sequences are stepped on the compiled automata of conjuncts in lockstep, 
+	 * and states of their product are materialized and cached only when they are reached, 
+	 * instead of intersecting and minimizing all conjuncts eagerly. 
+	 * Validity and extensibility are the same as those on the whole compiled automaton. 
+	 * Cursors created before switching the mode should not be used after it.
+	 * 
+	 * @param isLazyProductMode
+	 */
+	public synchronized void setLazyProductMode(boolean isLazyProductMode) {
+		if (isLazyProductMode && productAutomaton != null)
+			throw new IllegalStateException("Lazy product mode is not supported in repetition product mode!");
+		
+		if (isLazyProductMode) {
+			List<Constraint> conjuncts = new ArrayList<Constraint>();
+			collectConjuncts(constraint, conjuncts);
+			
+			CompiledAutomaton[] components = new CompiledAutomaton[conjuncts.size()];
+			for (int i = 0; i < components.length; i++)
+				components[i] = compile(conjuncts.get(i));
+			lazyProductAutomaton = new LazyProductAutomaton(components);
+		}
+		else
+			lazyProductAutomaton = null;
+	}
+	
+	public boolean isLazyProductMode() {
+		return lazyProductAutomaton != null;
+	}
+	
+	// top-level conjuncts from left to right
+	private void collectConjuncts(Constraint cons, List<Constraint> conjuncts) {
+		if (Constants.AND.equals(cons.getOperator())) {
+			collectConjuncts(cons.getLeftOperand(), conjuncts);
+			collectConjuncts(cons.getRightOperand(), conjuncts);
+		}
+		else
+			conjuncts.add(cons);
+	}
+	
+	/**
+	 * @return the lazyProductAutomaton, or null if lazy product mode is off
+	 */
+	public LazyProductAutomaton getLazyProductAutomaton() {
+		return lazyProductAutomaton;
+	}
+	
+	// the automaton stepped by cursors
+	EventAutomaton getEventAutomaton() {
+		if (lazyProductAutomaton != null)
+			return lazyProductAutomaton;
+		return getCompiledAutomaton();
+	}
+
+	/**
+	 * @return the productAutomaton, or null if repetition product mode is off
+	 */
+	public RepetitionProductAutomaton getProductAutomaton() {
+		return productAutomaton;
 	}
 
 	/**
 	 * @return the automaton
 	 */
-	public Automaton getAutomaton() {
+	public synchronized Automaton getAutomaton() {
+		CompiledAutomaton wholeCompiledAutomaton = getCompiledAutomaton();
+		if (automaton == null)
+			automaton = wholeCompiledAutomaton.toAutomaton(convertor);
 		return automaton;
 	}
 
+	/**
+	 * @return the compiledAutomaton of the whole constraint, which is compiled (or loaded from the store) at the first call
+	 */
+	public CompiledAutomaton getCompiledAutomaton() {
+		CompiledAutomaton result = compiledAutomaton;
+		if (result == null) {
+			synchronized (this) {
+				if (compiledAutomaton == null)
+					compiledAutomaton = compile(constraint);
+				result = compiledAutomaton;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the alphabet of events
+	 */
+	public EventAlphabet getAlphabet() {
+		return alphabet;
+	}
+
 	/**
 	 * @return the convertor
 	 */
@@ -7,18 +7,23 @@ import java.util.List;
 
 import sequencingConstraints.*;
 import util.Constants;
+import util.EventAlphabet;
 
 public class ConstraintParser implements ConstraintParserConstants {
 
-   // store events
-   private List<String> events;
+   // store events, which are interned as event indices
+   private EventAlphabet alphabet;
 
    // a list of events that appear in the sequencing constraint
    private List<String> usedEvents;
 
    public ConstraintParser (String constraint, List<String> eventsList) {
+      this(constraint, new EventAlphabet(eventsList));
+   }
+
+   public ConstraintParser (String constraint, EventAlphabet eventAlphabet) {
       this(new StringReader (constraint));
-      events = eventsList;
+      alphabet = eventAlphabet;
 
       usedEvents = new ArrayList<String> ();
    }
@@ -497,7 +502,7 @@ public class ConstraintParser implements ConstraintParserConstants {
     case IDENTIFIER:
       t = jj_consume_token(IDENTIFIER);
   if(parse_only){
-     boolean isEvent = events.contains(t.image);
+     boolean isEvent = alphabet.contains(t.image);
      if (isEvent == false) {
         {if (true) throw new ParseException("Unrecognized event: " + t.image
                                                                 + "\u005cn");}
@@ -507,14 +512,14 @@ public class ConstraintParser implements ConstraintParserConstants {
 
         rv.setText (t.image);
 
-        rv.setConstraint(new Constraint(t.image, null, null));
+        rv.setConstraint(new Constraint(t.image, alphabet.getIndex(t.image)));
         rval = rv;
 
         // add this valid event into usedEvents list
         usedEvents.add (t.image);
      }
   } else {
-    boolean isEvent = events.contains(t.image);
+    boolean isEvent = alphabet.contains(t.image);
     if (isEvent == false) {
            {if (true) throw new ParseException ("Unrecognized event: " + t.image
                                                                         + "\u005cn");}
@@ -599,7 +604,7 @@ public class ConstraintParser implements ConstraintParserConstants {
    Object rval = null;
     t = jj_consume_token(IDENTIFIER);
   if(parse_only){
-     boolean isEvent = events.contains(t.image);
+     boolean isEvent = alphabet.contains(t.image);
      if (isEvent == false) {
         {if (true) throw new ParseException("Unrecognized event: " + t.image
                                                                 + "\u005cn");}
@@ -609,14 +614,14 @@ public class ConstraintParser implements ConstraintParserConstants {
 
         rv.setText (t.image);
 
-        rv.setConstraint(new Constraint(t.image, null, null));
+        rv.setConstraint(new Constraint(t.image, alphabet.getIndex(t.image)));
         rval = rv;
 
         // add this valid event into usedEvents list
         usedEvents.add (t.image);
      }
   } else {
-    boolean isEvent = events.contains(t.image);
+    boolean isEvent = alphabet.contains(t.image);
     if (isEvent == false) {
            {if (true) throw new ParseException ("Unrecognized event: " + t.image
                                                                         + "\u005cn");}
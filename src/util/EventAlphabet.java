@@ -0,0 +1,115 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * this class interns the unique event names into small integer indices 0 .. n-1 once,
+ * so that parser, solver and generator can all operate on int arrays of events,
+ * and only convert back to event names for output
+ *
+ * @author Feng Duan
+ *
+ */
+public class EventAlphabet {
+
+	private List<String> events = new ArrayList<String>(); // index -> event
+	private Map<String, Integer> mapEventsToIndices = new HashMap<String, Integer>(); // event -> index
+
+	public EventAlphabet(List<String> eventsList) {
+		// duplicated events are interned only once, in the order of their first appearance
+		for (String event : eventsList) {
+			if (!mapEventsToIndices.containsKey(event)) {
+				mapEventsToIndices.put(event, events.size());
+				events.add(event);
+			}
+		}
+		events = Collections.unmodifiableList(events);
+	}
+
+	public EventAlphabet(String[] events) {
+		this(Arrays.asList(events));
+	}
+
+	public int size() {
+		return events.size();
+	}
+
+	public boolean contains(String event) {
+		return mapEventsToIndices.containsKey(event);
+	}
+
+	/**
+	 * @param event
+	 * @return the index of event, or -1 if it is not in the alphabet
+	 */
+	public int getIndex(String event) {
+		Integer index = mapEventsToIndices.get(event);
+		if (index == null)
+			return -1;
+		return index;
+	}
+
+	public String getEvent(int index) {
+		return events.get(index);
+	}
+
+	/**
+	 * @return the unique events in the order of their indices
+	 */
+	public List<String> getEvents() {
+		return events;
+	}
+
+	/**
+	 * @param sequence sequence of event names
+	 * @return sequence of event indices
+	 */
+	public int[] encode(List<String> sequence) {
+		int[] encoded = new int[sequence.size()];
+		for (int i=0; i<sequence.size(); i++) {
+			int index = getIndex(sequence.get(i));
+			if (index < 0)
+				throw new IllegalArgumentException("Doesn't support event " + sequence.get(i) + "!");
+			encoded[i] = index;
+		}
+		return encoded;
+	}
+
+	/**
+	 * @param sequence sequence of event indices
+	 * @param length number of events to decode from the beginning of sequence
+	 * @return sequence of event names
+	 */
+	public List<String> decode(int[] sequence, int length) {
+		List<String> decoded = new ArrayList<String>(length);
+		for (int i=0; i<length; i++)
+			decoded.add(events.get(sequence[i]));
+		return decoded;
+	}
+
+	public List<String> decode(int[] sequence) {
+		return decode(sequence, sequence.length);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof EventAlphabet))
+			return false;
+		return events.equals(((EventAlphabet) obj).events);
+	}
+
+	@Override
+	public int hashCode() {
+		return events.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return events.toString();
+	}
+}